@@ -0,0 +1,106 @@
+package com.github.vincentrussell.json.datagenerator;
+
+import com.synectiks.json.datagenerator.CompiledTemplate;
+import com.synectiks.json.datagenerator.GenerationResult;
+import com.synectiks.json.datagenerator.JsonDataGeneratorException;
+import com.synectiks.json.datagenerator.impl.JsonDataGeneratorImpl;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+
+/**
+ * end to end generation of representative templates, both parsing the template on every call
+ * with <code>generateTestDataJson</code> and rendering an already compiled template
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonDataGeneratorBenchmark {
+
+    private static final String PERSON = "{\n"
+        + "    \"id\": \"{{uuid()}}\",\n"
+        + "    \"index\": {{index()}},\n"
+        + "    \"name\": \"{{firstName()}} {{lastName()}}\",\n"
+        + "    \"email\": \"{{email()}}\",\n"
+        + "    \"age\": {{integer(18, 90)}},\n"
+        + "    \"active\": {{bool()}},\n"
+        + "    \"registered\": \"{{date(\"dd-MM-yyyy HH:mm:ss\")}}\",\n"
+        + "    \"address\": \"{{integer(1, 999)}} {{street()}}, {{city()}}, {{state()}}\",\n"
+        + "    \"about\": \"{{lorem(3, \"sentences\")}}\"\n"
+        + "}";
+
+    private static final String REPEAT = "[\n"
+        + "    '{{repeat(100)}}',\n"
+        + "    {\n"
+        + "        \"id\": \"{{objectId()}}\",\n"
+        + "        \"name\": \"{{toUpperCase(concat(firstName(), ' ', lastName()))}}\",\n"
+        + "        \"tags\": [\n"
+        + "            '{{repeat(5)}}',\n"
+        + "            \"{{lorem(1, \"words\")}}\"\n"
+        + "        ],\n"
+        + "        \"friends\": [\n"
+        + "            '{{repeat(3)}}',\n"
+        + "            {\n"
+        + "                \"id\": {{index()}},\n"
+        + "                \"name\": \"{{firstName()}} {{surname()}}\"\n"
+        + "            }\n"
+        + "        ]\n"
+        + "    }\n"
+        + "]";
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<root>\n"
+        + "  '{{repeat(100)}}',\n"
+        + "  <element>\n"
+        + "    <id>{{guid()}}</id>\n"
+        + "    <name>{{firstName()}}</name>\n"
+        + "    <tags>\n"
+        + "      '{{repeat(5)}}',\n"
+        + "      <tag>{{lorem(1, \"words\")}}</tag>\n"
+        + "    </tags>\n"
+        + "  </element>\n"
+        + "</root>";
+
+    @Param({"person", "repeat", "xml"})
+    private String template;
+
+    private String text;
+    private JsonDataGeneratorImpl generator;
+    private CompiledTemplate compiledTemplate;
+    private final OutputStream outputStream = new NullOutputStream();
+
+    @Setup
+    public void setUp() throws JsonDataGeneratorException {
+        if ("person".equals(template)) {
+            text = PERSON;
+        } else if ("repeat".equals(template)) {
+            text = REPEAT;
+        } else {
+            text = XML;
+        }
+        generator = new JsonDataGeneratorImpl();
+        compiledTemplate = generator.compile(text);
+    }
+
+    @Benchmark
+    public GenerationResult generate() throws JsonDataGeneratorException {
+        return generator.generateTestDataJson(text, outputStream);
+    }
+
+    @Benchmark
+    public GenerationResult renderCompiled() throws JsonDataGeneratorException {
+        return compiledTemplate.render(outputStream);
+    }
+}
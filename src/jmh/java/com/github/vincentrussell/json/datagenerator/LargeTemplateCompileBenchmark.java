@@ -0,0 +1,72 @@
+package com.github.vincentrussell.json.datagenerator;
+
+import com.synectiks.json.datagenerator.CompiledTemplate;
+import com.synectiks.json.datagenerator.JsonDataGeneratorException;
+import com.synectiks.json.datagenerator.impl.JsonDataGeneratorImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compiling a template of about 4MB that is mostly a static array, once from a {@link String} and
+ * once from a memory-mapped file, to measure how fast the compiler scans text between tokens
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LargeTemplateCompileBenchmark {
+
+    private static final int STATIC_ELEMENTS = 50000;
+
+    private String text;
+    private File file;
+    private JsonDataGeneratorImpl generator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder builder = new StringBuilder("{\"lookup\": [");
+        for (int i = 0; i < STATIC_ELEMENTS; i++) {
+            builder.append(i == 0 ? "" : ",").append("{\"code\": \"C").append(i)
+                .append("\", \"label\": \"static label number ").append(i)
+                .append(" with some padding text\"}");
+        }
+        builder.append("], \"items\": ['{{repeat(10)}}', {\"id\": \"{{uuid()}}\"}]}");
+        text = builder.toString();
+        file = File.createTempFile("large-template", ".json");
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        generator = new JsonDataGeneratorImpl();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public CompiledTemplate compileString() throws JsonDataGeneratorException {
+        return generator.compile(text);
+    }
+
+    @Benchmark
+    public CompiledTemplate compileMappedFile() throws JsonDataGeneratorException {
+        return generator.compile(file);
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.vincentrussell.json.datagenerator.functions;
+
+import com.synectiks.json.datagenerator.functions.FunctionCallExpression;
+import com.synectiks.json.datagenerator.functions.FunctionContext;
+import com.synectiks.json.datagenerator.parser.FunctionCallParser;
+import com.synectiks.json.datagenerator.parser.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * cost of every built-in function, called the way a compiled template calls it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuiltInFunctionBenchmark {
+
+    @Param({
+        "addDays('25-06-2018 10:00:00', '5')",
+        "addHours('25-06-2018 10:00:00', '5')",
+        "addMinutes('25-06-2018 10:00:00', '5')",
+        "addMonths('25-06-2018 10:00:00', '5')",
+        "addSeconds('25-06-2018 10:00:00', '5')",
+        "addWeeks('25-06-2018 10:00:00', '5')",
+        "addYears('25-06-2018 10:00:00', '5')",
+        "alpha(10)",
+        "alphaNumeric(10)",
+        "bool()",
+        "city()",
+        "company()",
+        "concat('a', 'b', 'c')",
+        "countriesList()",
+        "country()",
+        "date()",
+        "dateFormat('25-06-2018', 'dd-MM-yyyy', 'yyyy/MM/dd')",
+        "double(0.5, 10.5)",
+        "email()",
+        "firstName()",
+        "float(0.5, 10.5)",
+        "gender()",
+        "hex(16)",
+        "index()",
+        "integer(1, 100)",
+        "ipv4()",
+        "ipv6()",
+        "lastName()",
+        "long(1, 100000)",
+        "lorem(5, 'words')",
+        "objectId()",
+        "phone()",
+        "put('key', 'value')",
+        "get('key')",
+        "random('a', 'b', 'c')",
+        "resetIndex()",
+        "ssn()",
+        "state()",
+        "street()",
+        "substring('benchmark', 2, 5)",
+        "timestamp()",
+        "toLowerCase('BENCHMARK')",
+        "toUpperCase('benchmark')",
+        "username()",
+        "uuid()"
+    })
+    private String call;
+
+    private FunctionCallExpression expression;
+    private FunctionContext context;
+
+    @Setup
+    public void setUp() throws ParseException, InvocationTargetException, IllegalAccessException {
+        expression = FunctionCallParser.parse(call);
+        context = new FunctionContext();
+        FunctionCallParser.parse("put('key', 'value')").evaluate(context);
+        FunctionCallParser.parse("index()").evaluate(context);
+    }
+
+    @Benchmark
+    public String evaluate() throws InvocationTargetException, IllegalAccessException {
+        return expression.evaluate(context);
+    }
+}
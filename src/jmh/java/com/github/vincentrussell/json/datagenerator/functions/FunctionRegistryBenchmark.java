@@ -0,0 +1,51 @@
+package com.github.vincentrussell.json.datagenerator.functions;
+
+import com.synectiks.json.datagenerator.functions.FunctionRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * cost of dispatching a call through {@link FunctionRegistry#executeFunction(String, String...)}
+ * for a function without arguments, with a fixed number of arguments and with var-args
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionRegistryBenchmark {
+
+    private FunctionRegistry functionRegistry;
+
+    @Setup
+    public void setUp() throws InvocationTargetException, IllegalAccessException {
+        functionRegistry = FunctionRegistry.getInstance();
+        functionRegistry.executeFunction("bool");
+        functionRegistry.executeFunction("toUpperCase", "a");
+        functionRegistry.executeFunction("concat", "a", "b", "c");
+    }
+
+    @Benchmark
+    public String noArguments() throws InvocationTargetException, IllegalAccessException {
+        return functionRegistry.executeFunction("bool");
+    }
+
+    @Benchmark
+    public String fixedArguments() throws InvocationTargetException, IllegalAccessException {
+        return functionRegistry.executeFunction("toUpperCase", "benchmark");
+    }
+
+    @Benchmark
+    public String varArgs() throws InvocationTargetException, IllegalAccessException {
+        return functionRegistry.executeFunction("concat", "a", "b", "c");
+    }
+}
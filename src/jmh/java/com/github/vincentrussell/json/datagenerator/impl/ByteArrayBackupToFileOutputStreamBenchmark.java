@@ -0,0 +1,62 @@
+package com.github.vincentrussell.json.datagenerator.impl;
+
+import com.synectiks.json.datagenerator.impl.ByteArrayBackupToFileOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * cost of writing 1MB to a {@link ByteArrayBackupToFileOutputStream} that stays in memory and
+ * one that spills to a file after 64KB, in 1KB chunks and one byte at a time
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteArrayBackupToFileOutputStreamBenchmark {
+
+    private static final int TOTAL_BYTES = 1024 * 1024;
+
+    @Param({"2097152", "65536"})
+    private int sizeBeforeOverFlow;
+
+    private final byte[] chunk = new byte[1024];
+
+    @Setup
+    public void setUp() {
+        Arrays.fill(chunk, (byte) 'a');
+    }
+
+    @Benchmark
+    public long writeChunks() throws IOException {
+        try (ByteArrayBackupToFileOutputStream outputStream =
+            new ByteArrayBackupToFileOutputStream(1024, sizeBeforeOverFlow)) {
+            for (int written = 0; written < TOTAL_BYTES; written += chunk.length) {
+                outputStream.write(chunk, 0, chunk.length);
+            }
+            return outputStream.getLength();
+        }
+    }
+
+    @Benchmark
+    public long writeBytes() throws IOException {
+        try (ByteArrayBackupToFileOutputStream outputStream =
+            new ByteArrayBackupToFileOutputStream(1024, sizeBeforeOverFlow)) {
+            for (int written = 0; written < TOTAL_BYTES; written++) {
+                outputStream.write('a');
+            }
+            return outputStream.getLength();
+        }
+    }
+}
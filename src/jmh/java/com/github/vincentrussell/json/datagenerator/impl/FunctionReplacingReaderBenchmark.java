@@ -0,0 +1,72 @@
+package com.github.vincentrussell.json.datagenerator.impl;
+
+import com.synectiks.json.datagenerator.impl.FunctionReplacingReader;
+import com.synectiks.json.datagenerator.impl.FunctionTokenResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * throughput of {@link FunctionReplacingReader} over a text with a token every few characters,
+ * read in blocks and one character at a time
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionReplacingReaderBenchmark {
+
+    @Param({"1000"})
+    private int records;
+
+    private String text;
+    private FunctionTokenResolver tokenResolver;
+    private final char[] buffer = new char[8192];
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < records; i++) {
+            builder.append("{\"id\": \"{{uuid()}}\", \"name\": \"{{firstName()}} {{lastName()}}\", ")
+                .append("\"age\": {{integer(18, 90)}}, \"text\": \"plain text without tokens\"}\n");
+        }
+        text = builder.toString();
+        tokenResolver = new FunctionTokenResolver();
+    }
+
+    @Benchmark
+    public long readBlocks() throws IOException {
+        long total = 0;
+        try (FunctionReplacingReader reader =
+            new FunctionReplacingReader(new StringReader(text), tokenResolver)) {
+            int read;
+            while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long readCharacters() throws IOException {
+        long total = 0;
+        try (FunctionReplacingReader reader =
+            new FunctionReplacingReader(new StringReader(text), tokenResolver)) {
+            while (reader.read() != -1) {
+                total++;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.vincentrussell.json.datagenerator.impl;
+
+import com.synectiks.json.datagenerator.impl.FunctionTokenResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * cost of {@link FunctionTokenResolver#resolveToken(CharSequence)} when the parsed call is cached
+ * and when every token has to be parsed again
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionTokenResolverBenchmark {
+
+    private static final String TOKEN = "concat(toUpperCase(firstName()), ' ', integer(1, 100))";
+
+    private FunctionTokenResolver cachingResolver;
+    private FunctionTokenResolver uncachedResolver;
+
+    @Setup
+    public void setUp() {
+        cachingResolver = new FunctionTokenResolver();
+        uncachedResolver = new FunctionTokenResolver(0);
+        cachingResolver.resolveToken(TOKEN);
+    }
+
+    @Benchmark
+    public String cacheHit() {
+        return cachingResolver.resolveToken(TOKEN);
+    }
+
+    @Benchmark
+    public String cacheMiss() {
+        return uncachedResolver.resolveToken(TOKEN);
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.vincentrussell.json.datagenerator.parser;
+
+import com.synectiks.json.datagenerator.parser.FunctionCallParser;
+import com.synectiks.json.datagenerator.parser.FunctionParser;
+import com.synectiks.json.datagenerator.parser.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+
+/**
+ * compares the generated parser with {@link FunctionCallParser} on distinct tokens, which is
+ * what the parsers see when the token cache misses
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(FunctionCallParserBenchmark.TOKENS)
+public class FunctionCallParserBenchmark {
+
+    static final int TOKENS = 10000;
+
+    private final String[] tokens = new String[TOKENS];
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < TOKENS; i++) {
+            tokens[i] = "random(concat('user', '" + i + "'), integer(" + i + ", " + (i + 100)
+                + "), lorem(" + (i % 50 + 1) + ", 'words'), \"" + i + "@example.com\")";
+        }
+    }
+
+    @Benchmark
+    public void generatedParser(final Blackhole blackhole) throws ParseException {
+        for (String token : tokens) {
+            blackhole.consume(new FunctionParser(new StringReader(token)).Compile());
+        }
+    }
+
+    @Benchmark
+    public void handWrittenParser(final Blackhole blackhole) throws ParseException {
+        for (String token : tokens) {
+            blackhole.consume(FunctionCallParser.parse(token));
+        }
+    }
+}
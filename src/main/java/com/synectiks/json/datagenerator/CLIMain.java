@@ -1,18 +1,22 @@
 package com.synectiks.json.datagenerator;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.InetSocketAddress;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -27,7 +31,8 @@ import org.graylog2.gelfclient.GelfMessageBuilder;
 import org.graylog2.gelfclient.GelfMessageLevel;
 import org.graylog2.gelfclient.GelfTransports;
 import org.graylog2.gelfclient.transport.GelfTransport;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -36,12 +41,14 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
 
+import com.google.common.base.Charsets;
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.synectiks.json.datagenerator.functions.RandomSource;
+import com.synectiks.json.datagenerator.impl.ByteArrayBackupToFileOutputStream;
 import com.synectiks.json.datagenerator.impl.JsonDataGeneratorImpl;
-import com.synectiks.json.datagenerator.impl.NonCloseableBufferedOutputStream;
+import com.synectiks.json.datagenerator.impl.SegmentPool;
+import com.synectiks.json.datagenerator.impl.TokenBucketPacer;
 
 /**
  * Main class for command line interface
@@ -51,6 +58,8 @@ public final class CLIMain {
     private static TimeZone DEFAULT_TIMEZONE = TimeZone.getDefault();
 
     public static final String ENTER_JSON_TEXT = "Enter input json:\n\n ";
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int DEFAULT_BURST = 100;
     public static String JSON_TO_KAFKA_URL = "http://localhost:9450/api/send-data-to-kafka";
     /**
      * default constructor
@@ -86,6 +95,48 @@ public final class CLIMain {
                 "gelf api port");
             o.setRequired(false);
             options.addOption(gelfPort);
+
+        Option threads = new Option("threads", "threads", true,
+                "number of threads used to render the outermost repeats.  Defaults to 1");
+            threads.setRequired(false);
+            options.addOption(threads);
+
+        Option seed = new Option("seed", "seed", true,
+                "seed for the random values so that a run can be reproduced.  "
+                + "Defaults to a random seed that is printed in the summary");
+            seed.setRequired(false);
+            options.addOption(seed);
+
+        Option rate = new Option("rate", "rate", true,
+                "emit the records at a rate that follows a profile instead of as fast as possible: "
+                + "constant:RATE, ramp:FROM:TO:SECONDS, step:SECONDS:RATE,RATE,..., "
+                + "sine:MEAN:AMPLITUDE:PERIOD_SECONDS or spike:BASE:SPIKE:INTERVAL_SECONDS:SPIKE_SECONDS");
+            rate.setRequired(false);
+            options.addOption(rate);
+
+        Option duration = new Option("duration", "duration", true,
+                "with -rate, keep generating the template for this many seconds.  "
+                + "Defaults to generating it once");
+            duration.setRequired(false);
+            options.addOption(duration);
+
+        Option burst = new Option("burst", "burst", true,
+                "with -rate, the number of records the output may fall behind the profile by and "
+                + "then catch up on.  Defaults to " + DEFAULT_BURST);
+            burst.setRequired(false);
+            options.addOption(burst);
+
+        Option spillThreshold = new Option("spillThreshold", "spillThreshold", true,
+                "number of bytes of generated data kept in memory before it is written to a file "
+                + "in the spill directory.  Defaults to " + ByteArrayBackupToFileOutputStream.DEFAULT_SIZE_BEFORE_OVER_FLOW);
+            spillThreshold.setRequired(false);
+            options.addOption(spillThreshold);
+
+        Option spillDirectory = new Option("spillDirectory", "spillDirectory", true,
+                "directory for generated data that does not fit in memory.  "
+                + "Defaults to the java.io.tmpdir directory");
+            spillDirectory.setRequired(false);
+            options.addOption(spillDirectory);
             
 //        o = new Option("d", "destinationFile", true,
 //            "the destination file.  Defaults to System.out");
@@ -143,16 +194,38 @@ public final class CLIMain {
                     throw new FileNotFoundException(source + " cannot be found");
                 }
                 
+                RenderOptions renderOptions = new RenderOptions();
+                String threads = cmd.getOptionValue("threads");
+                if (!StringUtils.isBlank(threads)) {
+                    renderOptions.setThreads(Integer.parseInt(threads));
+                }
+                //always seed so that every run can be reproduced from the seed in its summary
+                String seed = cmd.getOptionValue("seed");
+                renderOptions.setSeed(!StringUtils.isBlank(seed)
+                    ? Long.parseLong(seed) : RandomSource.forCurrentThread().nextLong());
+
+                String spillThreshold = cmd.getOptionValue("spillThreshold");
+                String spillDirectory = cmd.getOptionValue("spillDirectory");
+                SpillBufferFactory spillBufferFactory = new SpillBufferFactory(
+                    !StringUtils.isBlank(spillThreshold) ? Integer.parseInt(spillThreshold)
+                        : ByteArrayBackupToFileOutputStream.DEFAULT_SIZE_BEFORE_OVER_FLOW,
+                    !StringUtils.isBlank(spillDirectory) ? new File(spillDirectory) : null);
+
+                String rate = cmd.getOptionValue("rate");
+                if (!StringUtils.isBlank(rate)) {
+                    generateAtRate(cmd, sourceFile, renderOptions, rate, spillBufferFactory);
+                    return;
+                }
+
                 String kafkaTopic = cmd.getOptionValue("kafkaTopic");
                 if(!StringUtils.isBlank(kafkaTopic)) {
 //                	throw new ParseException("Missing required option: -kafkaTopic");
-                
-	                File tempDestinationFile = new File(System.getProperty("java.io.tmpdir")+"/"+sourceFile.getName()+".json");
-	        		String jsonString = generateRandomData(sourceFile, tempDestinationFile);
-	        		ResponseEntity<String> response = uploadDataToKafka(jsonString, tempDestinationFile, sourceFile.getName(), kafkaTopic);
-	                if(tempDestinationFile.exists()) {
-	                	tempDestinationFile.delete();
-	                }
+
+                	//generated data stays in memory up to the spill threshold and is uploaded from there
+                	try (ByteArrayBackupToFileOutputStream buffer = spillBufferFactory.create()) {
+                		generateRandomData(sourceFile, buffer, renderOptions);
+                		uploadDataToKafka(new SpillBufferResource(buffer, sourceFile.getName() + ".json"), kafkaTopic);
+                	}
                 }
                 
                 String gelf = cmd.getOptionValue("gelf");
@@ -166,13 +239,12 @@ public final class CLIMain {
                 	if(StringUtils.isBlank(gport)) {
                 		throw new ParseException("Missing gelf server port: -gport");
                 	}
-                	File tempDestinationFile = new File(System.getProperty("java.io.tmpdir")+"/"+sourceFile.getName()+".json");
-	        		String jsonString = generateRandomData(sourceFile, tempDestinationFile);
-	        		
-                	JsonArray ary = new Gson().fromJson(jsonString, JsonArray.class);
-                	
-                	for(JsonElement je: ary) {
-                		JsonObject jo = je.getAsJsonObject();
+                	//send the records as they are generated instead of parsing the whole output
+                	Iterable<String> records = new JsonDataGeneratorImpl(renderOptions)
+                	    .compile(sourceFile).records(renderOptions);
+                	Gson gson = new Gson();
+                	for(String record: records) {
+                		JsonObject jo = gson.fromJson(record, JsonObject.class);
                 		String name = jo.get("name").getAsString();
                 		System.out.println("msg: "+name);
                 		GelfMessageBuilder gmBuilder = new GelfMessageBuilder(name, ghost).level(GelfMessageLevel.INFO);
@@ -240,27 +312,115 @@ public final class CLIMain {
 
     }
 
-	private static String generateRandomData(File sourceFile, File tempDestinationFile)
+    /**
+     * send the records of the template to every output selected on the command line, or to
+     * System.out if there is none, paced by a {@link TokenBucketPacer} whose bucket holds
+     * <code>-burst</code> tokens, so that time lost to a slow output or to the scheduler is made up
+     * instead of lowering the achieved rate.  A report of the achieved
+     * rate is printed to System.err every second and at the end of the run.
+     */
+    private static void generateAtRate(final CommandLine cmd, final File sourceFile,
+        final RenderOptions renderOptions, final String rate,
+        final SpillBufferFactory spillBufferFactory)
+        throws ParseException, IOException, JsonDataGeneratorException, InterruptedException {
+        RateProfile rateProfile;
+        try {
+            rateProfile = RateProfile.parse(rate);
+        } catch (IllegalArgumentException e) {
+            throw new ParseException(e.getMessage());
+        }
+        String duration = cmd.getOptionValue("duration");
+        long durationNanos = !StringUtils.isBlank(duration)
+            ? (long) (Double.parseDouble(duration) * TimeUnit.SECONDS.toNanos(1)) : 0;
+        String burstValue = cmd.getOptionValue("burst");
+        int burst = !StringUtils.isBlank(burstValue) ? Integer.parseInt(burstValue) : DEFAULT_BURST;
+        if (burst <= 0) {
+            throw new ParseException("burst must be greater than 0: " + burst);
+        }
+
+        List<RecordSink> sinks = new ArrayList<>();
+        String kafkaTopic = cmd.getOptionValue("kafkaTopic");
+        if (!StringUtils.isBlank(kafkaTopic)) {
+            sinks.add(new KafkaRecordSink(sourceFile.getName() + ".json", kafkaTopic,
+                spillBufferFactory));
+        }
+        if (!StringUtils.isBlank(cmd.getOptionValue("gelf"))) {
+            String ghost = cmd.getOptionValue("ghost");
+            String gport = cmd.getOptionValue("gport");
+            if (StringUtils.isBlank(ghost)) {
+                throw new ParseException("Missing gelf server address: -ghost");
+            }
+            if (StringUtils.isBlank(gport)) {
+                throw new ParseException("Missing gelf server port: -gport");
+            }
+            sinks.add(new GelfRecordSink(getGelfTransport(ghost, Integer.parseInt(gport)), ghost));
+        }
+        if (sinks.isEmpty()) {
+            sinks.add(new SystemOutRecordSink());
+        }
+
+        System.err.println("generating at " + rateProfile);
+        CompiledTemplate compiledTemplate = new JsonDataGeneratorImpl(renderOptions).compile(sourceFile);
+        TokenBucketPacer pacer = new TokenBucketPacer(rateProfile, burst);
+        long start = System.nanoTime();
+        long lastReport = start;
+        long seed = renderOptions.getSeed();
+        try {
+            //every pass over the template gets the next seed so that passes are not repeated
+            for (long pass = 0; pass == 0 || System.nanoTime() - start < durationNanos; pass++) {
+                renderOptions.setSeed(seed + pass);
+                for (String record : compiledTemplate.records(renderOptions)) {
+                    //wait in slices so that reports go on and the run ends on time even while
+                    //the profile asks for no records
+                    while (!pacer.tryAcquire(REPORT_INTERVAL_NANOS, TimeUnit.NANOSECONDS)) {
+                        lastReport = reportIfDue(pacer, lastReport);
+                        if (durationNanos > 0 && System.nanoTime() - start >= durationNanos) {
+                            return;
+                        }
+                    }
+                    for (RecordSink sink : sinks) {
+                        sink.send(record);
+                    }
+                    lastReport = reportIfDue(pacer, lastReport);
+                    if (durationNanos > 0 && System.nanoTime() - start >= durationNanos) {
+                        return;
+                    }
+                }
+            }
+        } finally {
+            for (RecordSink sink : sinks) {
+                sink.close();
+            }
+            System.err.println(pacer.getReport());
+        }
+    }
+
+    private static long reportIfDue(final TokenBucketPacer pacer, final long lastReport) {
+        long now = System.nanoTime();
+        if (now - lastReport >= REPORT_INTERVAL_NANOS) {
+            System.err.println(pacer.getReport());
+            return now;
+        }
+        return lastReport;
+    }
+
+	private static void generateRandomData(File sourceFile,
+			ByteArrayBackupToFileOutputStream buffer, RenderOptions renderOptions)
 			throws JsonDataGeneratorException, IOException, FileNotFoundException {
-		tempDestinationFile.deleteOnExit();
-		String jsonString = "";
-		JsonDataGenerator jsonDataGenerator = new JsonDataGeneratorImpl();
-		try (InputStream inputStream = new FileInputStream(sourceFile);
-		     OutputStream outputStream = tempDestinationFile != null
-		             ? new FileOutputStream(tempDestinationFile)
-		         : new NonCloseableBufferedOutputStream(System.out)) {
-		    jsonString = jsonDataGenerator.generateTestDataJson(inputStream, outputStream);
-		    System.out.println(jsonString);
-		}
-		return jsonString;
+		JsonDataGenerator jsonDataGenerator = new JsonDataGeneratorImpl(renderOptions);
+		GenerationResult result = jsonDataGenerator.generateTestDataJson(sourceFile, buffer);
+		buffer.writeTo(System.out);
+		System.out.println();
+		System.err.println(result);
 	}
 
 
-    private static ResponseEntity<String> uploadDataToKafka(String jsonString, File tempDestinationFile, String entity, String kafkaTopic) throws IOException {
+    private static ResponseEntity<String> uploadDataToKafka(Resource file, String kafkaTopic) {
     	HttpHeaders headers = new HttpHeaders();
     	headers.setContentType(MediaType.MULTIPART_FORM_DATA);
     	MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-    	body.add("file", getTempOutputFile(jsonString, entity));
+    	System.out.println("uploading: " + file.getFilename());
+    	body.add("file", file);
     	
     	HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
     	
@@ -270,16 +430,228 @@ public final class CLIMain {
     	System.out.println(response);
     	return response;
     }
-    
-    public static FileSystemResource getTempOutputFile(String jsonString, String entity) throws IOException {
-        Path tempFile = Files.createTempFile(entity, ".json");
-        Files.write(tempFile, jsonString.getBytes());
-        System.out.println("uploading: " + tempFile);
-        File file = tempFile.toFile();
-        file.deleteOnExit();
-        return new FileSystemResource(file);
+
+    /**
+     * creates the buffers generated data is collected in before it is uploaded.  The buffers
+     * share a pool of segments, so the batches of a rate controlled run reuse the same memory.
+     */
+    private static class SpillBufferFactory {
+        private final SegmentPool segmentPool = new SegmentPool();
+        private final int spillThreshold;
+        private final File spillDirectory;
+
+        SpillBufferFactory(final int spillThreshold, final File spillDirectory)
+            throws ParseException {
+            if (spillThreshold < 0) {
+                throw new ParseException("spillThreshold can not be negative: " + spillThreshold);
+            }
+            if (spillDirectory != null && !spillDirectory.isDirectory()) {
+                throw new ParseException(spillDirectory + " is not a directory");
+            }
+            this.spillThreshold = spillThreshold;
+            this.spillDirectory = spillDirectory;
+        }
+
+        ByteArrayBackupToFileOutputStream create() {
+            return new ByteArrayBackupToFileOutputStream(segmentPool, spillThreshold,
+                spillDirectory);
+        }
     }
-    
+
+    /**
+     * the content of a {@link ByteArrayBackupToFileOutputStream} as an upload, read from memory or
+     * from its spill file without another copy
+     */
+    private static class SpillBufferResource extends AbstractResource {
+        private final ByteArrayBackupToFileOutputStream buffer;
+        private final String filename;
+
+        SpillBufferResource(final ByteArrayBackupToFileOutputStream buffer, final String filename) {
+            this.buffer = buffer;
+            this.filename = filename;
+        }
+
+        @Override
+        public String getDescription() {
+            return "generated data " + filename;
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public long contentLength() {
+            return buffer.getLength();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return buffer.getNewInputStream();
+        }
+    }
+
+    /**
+     * an output of rate controlled generation
+     */
+    private interface RecordSink {
+        void send(String record) throws IOException, InterruptedException;
+
+        void close() throws IOException, InterruptedException;
+    }
+
+    /**
+     * writes every record on its own line to System.out
+     */
+    private static class SystemOutRecordSink implements RecordSink {
+        @Override
+        public void send(final String record) {
+            System.out.println(record);
+        }
+
+        @Override
+        public void close() {
+            System.out.flush();
+        }
+    }
+
+    /**
+     * sends every record as a GELF message over one transport
+     */
+    private static class GelfRecordSink implements RecordSink {
+        private final GelfTransport transport;
+        private final String host;
+        private final Gson gson = new Gson();
+
+        GelfRecordSink(final GelfTransport transport, final String host) {
+            this.transport = transport;
+            this.host = host;
+        }
+
+        @Override
+        public void send(final String record) throws InterruptedException {
+            JsonObject jo = gson.fromJson(record, JsonObject.class);
+            transport.send(new GelfMessageBuilder(jo.get("name").getAsString(), host)
+                .level(GelfMessageLevel.INFO).build());
+        }
+
+        @Override
+        public void close() {
+            transport.flushAndStopSynchronously(100, TimeUnit.MILLISECONDS, 50);
+        }
+    }
+
+    /**
+     * collects the records of each second into a json array and uploads it to kafka, so that the
+     * uploads follow the rate of the records.  The uploads run one after another on a thread of
+     * their own so that the pacing thread does not wait for the http request.  At most
+     * {@link #MAX_PENDING_UPLOADS} batches wait for the uploader; after that the pacing thread waits
+     * for the oldest one, so a slow kafka shows up as lag instead of filling the memory and the
+     * spill directory.  A failed upload is thrown from the next {@link #send(String)} or from
+     * {@link #close()}.
+     */
+    private static class KafkaRecordSink implements RecordSink {
+        private static final byte[] SEPARATOR = ",\n".getBytes(Charsets.UTF_8);
+        private static final int MAX_PENDING_UPLOADS = 2;
+        private final String filename;
+        private final String kafkaTopic;
+        private final SpillBufferFactory spillBufferFactory;
+        private ExecutorService uploader;
+        private final Deque<Future<?>> uploads = new ArrayDeque<>();
+        private ByteArrayBackupToFileOutputStream batch;
+        private long batchStart = System.nanoTime();
+
+        KafkaRecordSink(final String filename, final String kafkaTopic,
+            final SpillBufferFactory spillBufferFactory) {
+            this.filename = filename;
+            this.kafkaTopic = kafkaTopic;
+            this.spillBufferFactory = spillBufferFactory;
+        }
+
+        @Override
+        public void send(final String record) throws IOException, InterruptedException {
+            while (!uploads.isEmpty() && uploads.peekFirst().isDone()) {
+                checkUpload(uploads.removeFirst());
+            }
+            if (batch == null) {
+                batch = spillBufferFactory.create();
+                batch.write('[');
+            } else {
+                batch.write(SEPARATOR);
+            }
+            batch.write(record.getBytes(Charsets.UTF_8));
+            if (System.nanoTime() - batchStart >= TimeUnit.SECONDS.toNanos(1)) {
+                upload();
+            }
+        }
+
+        @Override
+        public void close() throws IOException, InterruptedException {
+            try {
+                upload();
+                while (!uploads.isEmpty()) {
+                    checkUpload(uploads.removeFirst());
+                }
+            } finally {
+                if (uploader != null) {
+                    uploader.shutdown();
+                    uploader.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        private void upload() throws IOException, InterruptedException {
+            if (batch != null) {
+                while (uploads.size() >= MAX_PENDING_UPLOADS) {
+                    checkUpload(uploads.removeFirst());
+                }
+                final ByteArrayBackupToFileOutputStream full = batch;
+                batch = null;
+                try {
+                    full.write(']');
+                } catch (IOException | RuntimeException e) {
+                    full.close();
+                    throw e;
+                }
+                if (uploader == null) {
+                    uploader = Executors.newSingleThreadExecutor();
+                }
+                uploads.addLast(uploader.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        try {
+                            uploadDataToKafka(new SpillBufferResource(full, filename), kafkaTopic);
+                            return null;
+                        } finally {
+                            full.close();
+                        }
+                    }
+                }));
+            }
+            batchStart = System.nanoTime();
+        }
+
+        private static void checkUpload(final Future<?> upload)
+            throws IOException, InterruptedException {
+            try {
+                upload.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException("upload to kafka failed", cause);
+            }
+        }
+    }
+
     /**
      * helper {@link Comparator} to wort arguments in help
      */
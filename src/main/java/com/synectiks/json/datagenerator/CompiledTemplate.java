@@ -0,0 +1,72 @@
+package com.synectiks.json.datagenerator;
+
+import java.io.OutputStream;
+import java.util.stream.Stream;
+
+/**
+ * a source json template that has been parsed once into an immutable plan of literals, repeats
+ * and function calls so that it can be rendered any number of times without being parsed again
+ */
+public interface CompiledTemplate {
+
+    /**
+     * Generate json test data from this template.  Functions and repeat ranges are evaluated
+     * again on every call.  Repeated elements are written to the stream as they are generated,
+     * so memory use depends on the size of the template and not on the size of the output.
+     *
+     * @param outputStream stream to write the test data to.
+     *                     You are responsible for closing your own OutputStream.
+     * @return a summary of what was generated
+     * @throws JsonDataGeneratorException default exception thrown when using the data generator
+     */
+    GenerationResult render(OutputStream outputStream) throws JsonDataGeneratorException;
+
+    /**
+     * Generate json test data from this template with the given options.  When more than one
+     * thread is requested the elements of the outermost repeats are rendered in parallel.
+     *
+     * @param outputStream stream to write the test data to.
+     *                     You are responsible for closing your own OutputStream.
+     * @param renderOptions the options that control rendering
+     * @return a summary of what was generated
+     * @throws JsonDataGeneratorException default exception thrown when using the data generator
+     */
+    GenerationResult render(OutputStream outputStream, RenderOptions renderOptions)
+        throws JsonDataGeneratorException;
+
+    /**
+     * The records of this template: the elements of its outermost repeats, or the whole
+     * generated text if it has no repeat.  Every iterator renders the template again and only
+     * renders an element when it is asked for, on the calling thread, so memory use is bounded by
+     * the size of one record.  Leading and trailing white space is removed from every record.
+     *
+     * @return the records
+     */
+    Iterable<String> records();
+
+    /**
+     * The records of this template generated with the given options.  With a seed the records
+     * are the same elements {@link #render(OutputStream, RenderOptions)} writes; the number of
+     * threads is ignored.
+     *
+     * @param renderOptions the options that control rendering
+     * @return the records
+     */
+    Iterable<String> records(RenderOptions renderOptions);
+
+    /**
+     * The records of this template as a sequential stream that renders an element when the
+     * stream pulls it
+     *
+     * @return the records
+     */
+    Stream<String> recordStream();
+
+    /**
+     * The records of this template generated with the given options as a sequential stream
+     *
+     * @param renderOptions the options that control rendering
+     * @return the records
+     */
+    Stream<String> recordStream(RenderOptions renderOptions);
+}
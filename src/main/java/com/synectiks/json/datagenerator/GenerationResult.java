@@ -0,0 +1,87 @@
+package com.synectiks.json.datagenerator;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * summary of a generation run that wrote test data to an OutputStream
+ */
+public final class GenerationResult {
+
+    private final long records;
+    private final long bytes;
+    private final long elapsedNanos;
+    private final Map<String, Long> functionCounts;
+    private final Long seed;
+
+    /**
+     * constructor
+     * @param records the number of records generated
+     * @param bytes the number of bytes written
+     * @param elapsedNanos the time spent generating in nanoseconds
+     * @param functionCounts the number of times each function was called
+     * @param seed the seed of the run or null if it was not seeded
+     */
+    public GenerationResult(final long records, final long bytes, final long elapsedNanos,
+        final Map<String, Long> functionCounts, final Long seed) {
+        this.records = records;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.functionCounts = Collections.unmodifiableMap(new LinkedHashMap<>(functionCounts));
+        this.seed = seed;
+    }
+
+    /**
+     * get the number of records generated.  This is the number of elements of the outermost
+     * repeats in the template, or 1 if the template does not have a repeat.
+     * @return the number of records
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * get the number of bytes written to the OutputStream
+     * @return the number of bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * get the time spent generating
+     * @param timeUnit the unit to return the time in
+     * @return the elapsed time
+     */
+    public long getElapsedTime(final TimeUnit timeUnit) {
+        return timeUnit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * get the number of times each function was called, including nested calls
+     * @return function call counts by function name
+     */
+    public Map<String, Long> getFunctionCounts() {
+        return functionCounts;
+    }
+
+    /**
+     * get the seed the run can be reproduced with
+     * @return the seed or null if the run was not seeded
+     */
+    public Long getSeed() {
+        return seed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "records: " + records + ", bytes: " + bytes + ", elapsed time: "
+            + getElapsedTime(TimeUnit.MILLISECONDS) + "ms, seed: " + seed + ", function calls: "
+            + functionCounts;
+    }
+}
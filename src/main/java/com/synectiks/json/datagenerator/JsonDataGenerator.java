@@ -5,6 +5,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.stream.Stream;
 
 /**
  * interface for class that streams json generation to OutputStream
@@ -17,9 +18,10 @@ public interface JsonDataGenerator {
      * @param text         source json text
      * @param outputStream stream to write the test data to.
      *                     You are responsible for closing your own OutputStream.
+     * @return a summary of what was generated
      * @throws JsonDataGeneratorException default exception thrown when using the data generator
      */
-    void generateTestDataJson(String text, OutputStream outputStream)
+    GenerationResult generateTestDataJson(String text, OutputStream outputStream)
         throws JsonDataGeneratorException;
 
     /**
@@ -28,9 +30,10 @@ public interface JsonDataGenerator {
      * @param classPathResource url of source json text on classpath
      * @param outputStream      stream to write the test data to.
      *                          You are responsible for closing your own OutputStream.
+     * @return a summary of what was generated
      * @throws JsonDataGeneratorException default exception thrown when using the data generator
      */
-    void generateTestDataJson(URL classPathResource, OutputStream outputStream)
+    GenerationResult generateTestDataJson(URL classPathResource, OutputStream outputStream)
         throws JsonDataGeneratorException;
 
     /**
@@ -39,9 +42,10 @@ public interface JsonDataGenerator {
      * @param file         file of source json text
      * @param outputStream stream to write the test data to.
      *                     You are responsible for closing your own OutputStream.
+     * @return a summary of what was generated
      * @throws JsonDataGeneratorException default exception thrown when using the data generator
      */
-    void generateTestDataJson(File file, OutputStream outputStream)
+    GenerationResult generateTestDataJson(File file, OutputStream outputStream)
         throws JsonDataGeneratorException;
 
 
@@ -50,9 +54,10 @@ public interface JsonDataGenerator {
      *
      * @param file         file of source json text
      * @param outputFile file to write the test data to.
+     * @return a summary of what was generated
      * @throws JsonDataGeneratorException default exception thrown when using the data generator
      */
-    void generateTestDataJson(File file, File outputFile)
+    GenerationResult generateTestDataJson(File file, File outputFile)
         throws JsonDataGeneratorException;
 
 
@@ -63,8 +68,84 @@ public interface JsonDataGenerator {
      *                     your own InputStream.
      * @param outputStream stream to write the test data to. You are responsible for
      *                     closing your own OutputStream.
+     * @return a summary of what was generated
      * @throws JsonDataGeneratorException default exception thrown when using the data generator
      */
-    String generateTestDataJson(InputStream inputStream, OutputStream outputStream)
+    GenerationResult generateTestDataJson(InputStream inputStream, OutputStream outputStream)
         throws JsonDataGeneratorException;
+
+    /**
+     * Generate json test data and also return all of it as a String.  This keeps the whole
+     * output in memory, so prefer
+     * {@link #generateTestDataJson(InputStream, OutputStream)} for large outputs.
+     *
+     * @param inputStream  inputstream source json text. You are responsible for closing
+     *                     your own InputStream.
+     * @param outputStream stream to write the test data to. You are responsible for
+     *                     closing your own OutputStream.
+     * @return the test data that was written to the outputStream
+     * @throws JsonDataGeneratorException default exception thrown when using the data generator
+     */
+    String generateTestDataJsonAsString(InputStream inputStream, OutputStream outputStream)
+        throws JsonDataGeneratorException;
+
+    /**
+     * Parse a template once so that it can be rendered many times
+     *
+     * @param text source json text
+     * @return the compiled template
+     * @throws JsonDataGeneratorException default exception thrown when using the data generator
+     */
+    CompiledTemplate compile(String text) throws JsonDataGeneratorException;
+
+    /**
+     * Parse a template once so that it can be rendered many times
+     *
+     * @param classPathResource url of source json text on classpath
+     * @return the compiled template
+     * @throws JsonDataGeneratorException default exception thrown when using the data generator
+     */
+    CompiledTemplate compile(URL classPathResource) throws JsonDataGeneratorException;
+
+    /**
+     * Parse a template once so that it can be rendered many times
+     *
+     * @param file file of source json text
+     * @return the compiled template
+     * @throws JsonDataGeneratorException default exception thrown when using the data generator
+     */
+    CompiledTemplate compile(File file) throws JsonDataGeneratorException;
+
+    /**
+     * Parse a template once so that it can be rendered many times
+     *
+     * @param inputStream inputstream source json text. You are responsible for closing
+     *                    your own InputStream.
+     * @return the compiled template
+     * @throws JsonDataGeneratorException default exception thrown when using the data generator
+     */
+    CompiledTemplate compile(InputStream inputStream) throws JsonDataGeneratorException;
+
+    /**
+     * The records of a template: the elements of its outermost repeats, or the whole generated
+     * text if it has no repeat, generated one at a time as they are asked for.  Every iteration
+     * generates the records again.
+     *
+     * @param text source json text
+     * @return the records
+     * @throws JsonDataGeneratorException default exception thrown when using the data generator
+     * @see CompiledTemplate#records(RenderOptions)
+     */
+    Iterable<String> records(String text) throws JsonDataGeneratorException;
+
+    /**
+     * The records of a template as a sequential stream that generates a record when the stream
+     * pulls it
+     *
+     * @param text source json text
+     * @return the records
+     * @throws JsonDataGeneratorException default exception thrown when using the data generator
+     * @see CompiledTemplate#recordStream(RenderOptions)
+     */
+    Stream<String> recordStream(String text) throws JsonDataGeneratorException;
 }
@@ -0,0 +1,229 @@
+package com.synectiks.json.datagenerator;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.commons.lang.Validate.isTrue;
+import static org.apache.commons.lang.Validate.notNull;
+
+/**
+ * the target number of records per second over the course of a run, used to shape the traffic
+ * of rate controlled generation
+ */
+public abstract class RateProfile {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * get the target rate at a point in the run
+     * @param elapsedNanos the time since the run started in nanoseconds
+     * @return the target rate in records per second; never negative
+     */
+    public abstract double getRate(long elapsedNanos);
+
+    /**
+     * the same rate for the whole run
+     * @param rate records per second
+     * @return the profile
+     */
+    public static RateProfile constant(final double rate) {
+        isTrue(rate > 0, "rate must be greater than 0");
+        return new RateProfile() {
+            @Override
+            public double getRate(final long elapsedNanos) {
+                return rate;
+            }
+
+            @Override
+            public String toString() {
+                return "constant " + rate + "/s";
+            }
+        };
+    }
+
+    /**
+     * a rate that changes linearly from one rate to another and then stays there
+     * @param fromRate records per second at the start
+     * @param toRate records per second at the end of the ramp and after it
+     * @param duration the length of the ramp
+     * @param timeUnit the unit of the duration
+     * @return the profile
+     */
+    public static RateProfile linearRamp(final double fromRate, final double toRate,
+        final long duration, final TimeUnit timeUnit) {
+        isTrue(fromRate >= 0 && toRate >= 0, "rates can not be negative");
+        isTrue(fromRate > 0 || toRate > 0, "one of the rates must be greater than 0");
+        isTrue(duration > 0, "duration must be greater than 0");
+        notNull(timeUnit, "timeUnit can not be null");
+        final long durationNanos = timeUnit.toNanos(duration);
+        return new RateProfile() {
+            @Override
+            public double getRate(final long elapsedNanos) {
+                if (elapsedNanos >= durationNanos) {
+                    return toRate;
+                }
+                return fromRate + (toRate - fromRate) * elapsedNanos / durationNanos;
+            }
+
+            @Override
+            public String toString() {
+                return "ramp " + fromRate + "/s to " + toRate + "/s over "
+                    + durationNanos / NANOS_PER_SECOND + "s";
+            }
+        };
+    }
+
+    /**
+     * rates that each last the same time; the last rate lasts until the end of the run
+     * @param stepDuration the length of every step
+     * @param timeUnit the unit of the step duration
+     * @param rates records per second of each step
+     * @return the profile
+     */
+    public static RateProfile steps(final long stepDuration, final TimeUnit timeUnit,
+        final double... rates) {
+        isTrue(stepDuration > 0, "stepDuration must be greater than 0");
+        notNull(timeUnit, "timeUnit can not be null");
+        isTrue(rates != null && rates.length > 0, "there must be at least one rate");
+        for (double rate : rates) {
+            isTrue(rate >= 0, "rates can not be negative");
+        }
+        final long stepNanos = timeUnit.toNanos(stepDuration);
+        final double[] stepRates = rates.clone();
+        return new RateProfile() {
+            @Override
+            public double getRate(final long elapsedNanos) {
+                return stepRates[(int) Math.min(elapsedNanos / stepNanos, stepRates.length - 1)];
+            }
+
+            @Override
+            public String toString() {
+                return "steps of " + stepNanos / NANOS_PER_SECOND + "s at "
+                    + Arrays.toString(stepRates) + "/s";
+            }
+        };
+    }
+
+    /**
+     * a rate that oscillates around a mean; it is never below 0
+     * @param meanRate the mean number of records per second
+     * @param amplitude the largest difference from the mean in records per second
+     * @param period the length of one oscillation
+     * @param timeUnit the unit of the period
+     * @return the profile
+     */
+    public static RateProfile sine(final double meanRate, final double amplitude,
+        final long period, final TimeUnit timeUnit) {
+        isTrue(meanRate > 0, "meanRate must be greater than 0");
+        isTrue(amplitude >= 0, "amplitude can not be negative");
+        isTrue(period > 0, "period must be greater than 0");
+        notNull(timeUnit, "timeUnit can not be null");
+        final long periodNanos = timeUnit.toNanos(period);
+        return new RateProfile() {
+            @Override
+            public double getRate(final long elapsedNanos) {
+                double phase = 2 * Math.PI * (elapsedNanos % periodNanos) / periodNanos;
+                return Math.max(0, meanRate + amplitude * Math.sin(phase));
+            }
+
+            @Override
+            public String toString() {
+                return "sine " + meanRate + "/s +/- " + amplitude + "/s every "
+                    + periodNanos / NANOS_PER_SECOND + "s";
+            }
+        };
+    }
+
+    /**
+     * a base rate with bursts at a higher rate at the start of every interval
+     * @param baseRate records per second between spikes
+     * @param spikeRate records per second during a spike
+     * @param interval the time from the start of one spike to the start of the next
+     * @param spikeDuration the length of a spike
+     * @param timeUnit the unit of the interval and the spike duration
+     * @return the profile
+     */
+    public static RateProfile spikes(final double baseRate, final double spikeRate,
+        final long interval, final long spikeDuration, final TimeUnit timeUnit) {
+        isTrue(baseRate >= 0, "baseRate can not be negative");
+        isTrue(spikeRate > 0, "spikeRate must be greater than 0");
+        isTrue(interval > 0, "interval must be greater than 0");
+        isTrue(spikeDuration > 0 && spikeDuration <= interval,
+            "spikeDuration must be greater than 0 and not longer than interval");
+        notNull(timeUnit, "timeUnit can not be null");
+        final long intervalNanos = timeUnit.toNanos(interval);
+        final long spikeNanos = timeUnit.toNanos(spikeDuration);
+        return new RateProfile() {
+            @Override
+            public double getRate(final long elapsedNanos) {
+                return elapsedNanos % intervalNanos < spikeNanos ? spikeRate : baseRate;
+            }
+
+            @Override
+            public String toString() {
+                return "spikes of " + spikeRate + "/s for " + spikeNanos / NANOS_PER_SECOND
+                    + "s every " + intervalNanos / NANOS_PER_SECOND + "s over " + baseRate + "/s";
+            }
+        };
+    }
+
+    /**
+     * parse a profile from its command line form, with times in seconds:
+     * <ul>
+     *     <li><code>constant:RATE</code></li>
+     *     <li><code>ramp:FROM_RATE:TO_RATE:DURATION</code></li>
+     *     <li><code>step:STEP_DURATION:RATE,RATE,...</code></li>
+     *     <li><code>sine:MEAN_RATE:AMPLITUDE:PERIOD</code></li>
+     *     <li><code>spike:BASE_RATE:SPIKE_RATE:INTERVAL:SPIKE_DURATION</code></li>
+     * </ul>
+     * @param specification the profile
+     * @return the profile
+     * @throws IllegalArgumentException if the specification is not valid
+     */
+    public static RateProfile parse(final String specification) {
+        notNull(specification, "specification can not be null");
+        String[] parts = specification.trim().split(":");
+        try {
+            switch (parts[0]) {
+                case "constant":
+                    checkArguments(specification, parts, 2);
+                    return constant(Double.parseDouble(parts[1]));
+                case "ramp":
+                    checkArguments(specification, parts, 4);
+                    return linearRamp(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]),
+                        toMillis(parts[3]), TimeUnit.MILLISECONDS);
+                case "step":
+                    checkArguments(specification, parts, 3);
+                    String[] rateTexts = parts[2].split(",");
+                    double[] rates = new double[rateTexts.length];
+                    for (int i = 0; i < rateTexts.length; i++) {
+                        rates[i] = Double.parseDouble(rateTexts[i].trim());
+                    }
+                    return steps(toMillis(parts[1]), TimeUnit.MILLISECONDS, rates);
+                case "sine":
+                    checkArguments(specification, parts, 4);
+                    return sine(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]),
+                        toMillis(parts[3]), TimeUnit.MILLISECONDS);
+                case "spike":
+                    checkArguments(specification, parts, 5);
+                    return spikes(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]),
+                        toMillis(parts[3]), toMillis(parts[4]), TimeUnit.MILLISECONDS);
+                default:
+                    throw new IllegalArgumentException("unknown rate profile: " + specification);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid rate profile: " + specification, e);
+        }
+    }
+
+    private static void checkArguments(final String specification, final String[] parts,
+        final int expected) {
+        if (parts.length != expected) {
+            throw new IllegalArgumentException("invalid rate profile: " + specification);
+        }
+    }
+
+    private static long toMillis(final String seconds) {
+        return Math.round(Double.parseDouble(seconds) * 1000);
+    }
+}
@@ -0,0 +1,127 @@
+package com.synectiks.json.datagenerator;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * how closely a rate controlled run has followed its {@link RateProfile}
+ */
+public final class RateReport {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long records;
+    private final double targetRecords;
+    private final long elapsedNanos;
+    private final double currentTargetRate;
+    private final long meanLatenessNanos;
+    private final long maxLatenessNanos;
+
+    /**
+     * constructor
+     * @param records the number of records emitted
+     * @param targetRecords the number of records the profile asked for so far
+     * @param elapsedNanos the time since the run started in nanoseconds
+     * @param currentTargetRate the rate the profile asks for now in records per second
+     * @param meanLatenessNanos the mean time a record was emitted after its scheduled time
+     * @param maxLatenessNanos the longest time a record was emitted after its scheduled time
+     */
+    public RateReport(final long records, final double targetRecords, final long elapsedNanos,
+        final double currentTargetRate, final long meanLatenessNanos, final long maxLatenessNanos) {
+        this.records = records;
+        this.targetRecords = targetRecords;
+        this.elapsedNanos = elapsedNanos;
+        this.currentTargetRate = currentTargetRate;
+        this.meanLatenessNanos = meanLatenessNanos;
+        this.maxLatenessNanos = maxLatenessNanos;
+    }
+
+    /**
+     * get the number of records emitted
+     * @return the number of records
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * get the number of records the profile asked for since the start of the run
+     * @return the target number of records
+     */
+    public double getTargetRecords() {
+        return targetRecords;
+    }
+
+    /**
+     * get the number of records the run is behind the profile.  A producer that can not keep up
+     * with the profile falls further behind; one that can keeps this below the burst size.
+     * @return the number of records behind, or 0 if the run is not behind
+     */
+    public long getLag() {
+        return Math.max(0, (long) Math.floor(targetRecords - records));
+    }
+
+    /**
+     * get the time since the run started
+     * @param timeUnit the unit to return the time in
+     * @return the elapsed time
+     */
+    public long getElapsedTime(final TimeUnit timeUnit) {
+        return timeUnit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * get the mean number of records per second emitted since the start of the run
+     * @return the achieved rate
+     */
+    public double getAchievedRate() {
+        return elapsedNanos > 0 ? records * NANOS_PER_SECOND / elapsedNanos : 0;
+    }
+
+    /**
+     * get the mean number of records per second the profile asked for since the start of the run
+     * @return the target rate
+     */
+    public double getTargetRate() {
+        return elapsedNanos > 0 ? targetRecords * NANOS_PER_SECOND / elapsedNanos : 0;
+    }
+
+    /**
+     * get the rate the profile asks for now
+     * @return records per second
+     */
+    public double getCurrentTargetRate() {
+        return currentTargetRate;
+    }
+
+    /**
+     * get the mean time a record was emitted after its scheduled time, the jitter of the scheduler
+     * @param timeUnit the unit to return the time in
+     * @return the mean lateness
+     */
+    public long getMeanLateness(final TimeUnit timeUnit) {
+        return timeUnit.convert(meanLatenessNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * get the longest time a record was emitted after its scheduled time
+     * @param timeUnit the unit to return the time in
+     * @return the maximum lateness
+     */
+    public long getMaxLateness(final TimeUnit timeUnit) {
+        return timeUnit.convert(maxLatenessNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "records: %d, elapsed time: %dms, achieved rate: %.1f/s, "
+                + "target rate: %.1f/s, current target rate: %.1f/s, lag: %d records, "
+                + "mean lateness: %dus, max lateness: %dus", records,
+            getElapsedTime(TimeUnit.MILLISECONDS), getAchievedRate(), getTargetRate(),
+            currentTargetRate, getLag(), getMeanLateness(TimeUnit.MICROSECONDS),
+            getMaxLateness(TimeUnit.MICROSECONDS));
+    }
+}
@@ -0,0 +1,76 @@
+package com.synectiks.json.datagenerator;
+
+import static org.apache.commons.lang.Validate.isTrue;
+
+/**
+ * options that control how a {@link CompiledTemplate} is rendered
+ */
+public final class RenderOptions {
+
+    private int threads = 1;
+    private boolean ordered = true;
+    private Long seed;
+
+    /**
+     * get the number of threads used to render the elements of the outermost repeats
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * set the number of threads used to render the elements of the outermost repeats.  With more
+     * than one thread, or with a seed, every element is a separate record: <code>index()</code>
+     * returns the position of the record in the output and values stored with <code>put</code>
+     * inside a record can only be read with <code>get</code> inside the same record.
+     * @param threads the number of threads; 1 renders on the calling thread
+     * @return these options
+     */
+    public RenderOptions setThreads(final int threads) {
+        isTrue(threads > 0, "threads must be greater than 0");
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * if the elements of the outermost repeats are written in element order when rendering
+     * with more than one thread
+     * @return true if the output is ordered
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * set if the elements of the outermost repeats are written in element order when rendering
+     * with more than one thread.  Unordered output writes elements as soon as they are rendered.
+     * @param ordered true to keep element order
+     * @return these options
+     */
+    public RenderOptions setOrdered(final boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    /**
+     * get the seed of the random source used by the functions and repeat ranges
+     * @return the seed or null if every render is different
+     */
+    public Long getSeed() {
+        return seed;
+    }
+
+    /**
+     * set the seed of the random source used by the functions and repeat ranges.  Rendering the
+     * same template with the same seed produces the same output no matter how many threads are
+     * used, except for functions that read the clock.  Every element of an outermost repeat gets
+     * a random source derived from the seed and the position of the element.
+     * @param seed the seed or null if every render should be different
+     * @return these options
+     */
+    public RenderOptions setSeed(final Long seed) {
+        this.seed = seed;
+        return this;
+    }
+}
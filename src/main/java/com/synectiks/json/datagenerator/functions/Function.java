@@ -30,4 +30,13 @@ public @interface Function {
      */
     boolean overridable() default false;
 
+    /**
+     * This function always returns the same value for the same arguments and has no side
+     * effects, so calls whose arguments are all literals are run once when a template is
+     * compiled and replaced with their result.
+     *
+     * @return if pure or not
+     */
+    boolean pure() default false;
+
 }
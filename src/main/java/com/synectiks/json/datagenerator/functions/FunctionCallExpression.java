@@ -0,0 +1,162 @@
+package com.synectiks.json.datagenerator.functions;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.apache.commons.lang.Validate.notNull;
+
+/**
+ * {@link FunctionExpression} for a call to a function registered in the {@link FunctionRegistry}.
+ * Arguments are evaluated before the call, unless the function takes them as {@link
+ * java.util.function.Supplier}s, in which case only the arguments the function asks for are
+ * evaluated.
+ */
+public final class FunctionCallExpression implements FunctionExpression {
+
+    private final String functionName;
+    private final FunctionExpression[] arguments;
+    private volatile BoundDispatcher boundDispatcher;
+
+    /**
+     * constructor
+     * @param functionName the name of the function to call
+     * @param arguments the argument expressions; evaluated from left to right on every call
+     */
+    public FunctionCallExpression(final String functionName,
+        final List<FunctionExpression> arguments) {
+        notNull(functionName, "a function name must be provided");
+        notNull(arguments, "arguments must be provided");
+        this.functionName = functionName;
+        this.arguments = arguments.toArray(new FunctionExpression[arguments.size()]);
+    }
+
+    /**
+     * get the name of the function that is called
+     * @return the function name
+     */
+    public String getFunctionName() {
+        return functionName;
+    }
+
+    /**
+     * get the argument expressions
+     * @return the arguments in order
+     */
+    public List<FunctionExpression> getArguments() {
+        return Collections.unmodifiableList(Arrays.asList(arguments));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String evaluate(final FunctionContext context)
+        throws InvocationTargetException, IllegalAccessException {
+        final FunctionDispatcher functionDispatcher = getDispatcher(context.getFunctionRegistry());
+        LazyArgument[] lazyValues = null;
+        String[] values = null;
+        if (functionDispatcher.isLazy(arguments.length)) {
+            lazyValues = new LazyArgument[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                lazyValues[i] = new LazyArgument(arguments[i], context);
+            }
+        } else {
+            values = new String[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                values[i] = arguments[i].evaluate(context);
+            }
+        }
+        context.functionCalled(functionName);
+        FunctionContext previous = FunctionContext.setCurrent(context);
+        try {
+            return lazyValues != null ? functionDispatcher.invokeLazy(lazyValues)
+                : functionDispatcher.invoke(values);
+        } finally {
+            FunctionContext.setCurrent(previous);
+        }
+    }
+
+    /**
+     * the function name followed by the arguments in parentheses
+     * @return the string form of this expression
+     */
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder(functionName).append('(');
+        for (int i = 0; i < arguments.length; i++) {
+            if (i > 0) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(arguments[i]);
+        }
+        return stringBuilder.append(')').toString();
+    }
+
+    /**
+     * fold calls to {@link Function#pure()} functions whose arguments are all literals into
+     * literals, starting with the innermost calls.  Calls that can not be folded, or that fail
+     * when they are run, are kept so that they behave as before when the template is rendered.
+     * @param functionRegistry the registry the functions are looked up in
+     * @return a literal for the result of this call, or a call whose arguments are folded
+     */
+    public FunctionExpression fold(final FunctionRegistry functionRegistry) {
+        FunctionExpression[] foldedArguments = new FunctionExpression[arguments.length];
+        boolean changed = false;
+        boolean literals = true;
+        for (int i = 0; i < arguments.length; i++) {
+            FunctionExpression argument = arguments[i];
+            if (argument instanceof FunctionCallExpression) {
+                argument = ((FunctionCallExpression) argument).fold(functionRegistry);
+            }
+            changed |= argument != arguments[i];
+            literals &= argument instanceof LiteralExpression;
+            foldedArguments[i] = argument;
+        }
+        FunctionCallExpression folded = changed
+            ? new FunctionCallExpression(functionName, Arrays.asList(foldedArguments)) : this;
+        if (!literals) {
+            return folded;
+        }
+        try {
+            if (!functionRegistry.getDispatcher(functionName).isPure(arguments.length)) {
+                return folded;
+            }
+            String value = folded.evaluate(new FunctionContext(null, functionRegistry));
+            return value != null ? new LiteralExpression(value) : folded;
+        } catch (InvocationTargetException | IllegalAccessException | RuntimeException e) {
+            return folded;
+        }
+    }
+
+    /**
+     * the dispatcher is looked up on the first call with a registry and kept until the expression
+     * is evaluated with another registry; dispatchers are never replaced, so threads racing on
+     * the first call all end up with the same one
+     */
+    private FunctionDispatcher getDispatcher(final FunctionRegistry functionRegistry) {
+        BoundDispatcher result = boundDispatcher;
+        if (result == null || result.functionRegistry != functionRegistry) {
+            result = new BoundDispatcher(functionRegistry,
+                functionRegistry.getDispatcher(functionName));
+            boundDispatcher = result;
+        }
+        return result.dispatcher;
+    }
+
+    /**
+     * a dispatcher and the registry it was found in
+     */
+    private static final class BoundDispatcher {
+        private final FunctionRegistry functionRegistry;
+        private final FunctionDispatcher dispatcher;
+
+        private BoundDispatcher(final FunctionRegistry functionRegistry,
+            final FunctionDispatcher dispatcher) {
+            this.functionRegistry = functionRegistry;
+            this.dispatcher = dispatcher;
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.synectiks.json.datagenerator.functions;
+
+import com.synectiks.json.datagenerator.impl.IndexHolder;
+import org.apache.commons.lang.mutable.MutableInt;
+import org.apache.commons.lang.mutable.MutableLong;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * state shared by the {@link FunctionExpression}s that are evaluated while generating one output.
+ * Not thread safe; every generation run, or every thread of a parallel run, uses its own context.
+ * While a function runs its context is available from {@link #current()}.
+ */
+public final class FunctionContext {
+
+    private static final ThreadLocal<FunctionContext> CURRENT = new ThreadLocal<>();
+    private final Map<String, MutableLong> functionCounts = new HashMap<>();
+    private final RandomSource randomSource;
+    private final FunctionRegistry functionRegistry;
+    private long recordIndex = -1;
+    private RandomSource recordRandomSource;
+    private Map<String, String> recordCache;
+    private Map<String, IndexHolder> indexes;
+    private Map<String, MutableInt> recordIndexes;
+
+    /**
+     * context whose functions use the unseeded random source of the thread they run on
+     */
+    public FunctionContext() {
+        this(null);
+    }
+
+    /**
+     * context whose functions use the given random source
+     * @param randomSource the random source or null for the random source of the current thread
+     */
+    public FunctionContext(final RandomSource randomSource) {
+        this(randomSource, null);
+    }
+
+    /**
+     * context whose functions use the given random source and function registry
+     * @param randomSource the random source or null for the random source of the current thread
+     * @param functionRegistry the registry functions are looked up in or null for the shared
+     *                         {@link FunctionRegistry#getInstance()}
+     */
+    public FunctionContext(final RandomSource randomSource,
+        final FunctionRegistry functionRegistry) {
+        this.randomSource = randomSource;
+        this.functionRegistry = functionRegistry;
+    }
+
+    /**
+     * get the context of the function that is running on this thread
+     * @return the context or null if no function is running
+     */
+    public static FunctionContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * make a context the current context of this thread
+     * @param context the context; may be null
+     * @return the context that was current before
+     */
+    static FunctionContext setCurrent(final FunctionContext context) {
+        FunctionContext previous = CURRENT.get();
+        CURRENT.set(context);
+        return previous;
+    }
+
+    /**
+     * get the random source functions should use
+     * @return the random source
+     */
+    public RandomSource getRandomSource() {
+        if (recordRandomSource != null) {
+            return recordRandomSource;
+        }
+        return randomSource != null ? randomSource : RandomSource.forCurrentThread();
+    }
+
+    /**
+     * get the registry functions are looked up in
+     * @return the function registry
+     */
+    public FunctionRegistry getFunctionRegistry() {
+        return functionRegistry != null ? functionRegistry : FunctionRegistry.getInstance();
+    }
+
+    /**
+     * record that a function is being called
+     * @param functionName the name of the function
+     */
+    public void functionCalled(final String functionName) {
+        MutableLong count = functionCounts.get(functionName);
+        if (count == null) {
+            count = new MutableLong();
+            functionCounts.put(functionName, count);
+        }
+        count.increment();
+    }
+
+    /**
+     * get the number of times each function was called
+     * @return function call counts sorted by function name
+     */
+    public Map<String, Long> getFunctionCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, MutableLong> entry : functionCounts.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().toLong());
+        }
+        return result;
+    }
+
+    /**
+     * add the function call counts of another context to this one
+     * @param other the other context
+     */
+    public void merge(final FunctionContext other) {
+        for (Map.Entry<String, MutableLong> entry : other.functionCounts.entrySet()) {
+            MutableLong count = functionCounts.get(entry.getKey());
+            if (count == null) {
+                functionCounts.put(entry.getKey(), new MutableLong(entry.getValue().longValue()));
+            } else {
+                count.add(entry.getValue().longValue());
+            }
+        }
+    }
+
+    /**
+     * start a record that is rendered independently of the others, like the elements of the
+     * outermost repeats when rendering with more than one thread or with a seed
+     * @param index the position of the record in the output
+     * @param randomSource the random source for the record or null to keep using the random
+     *                     source of this context
+     */
+    public void startRecord(final long index, final RandomSource randomSource) {
+        this.recordIndex = index;
+        this.recordRandomSource = randomSource;
+        this.recordCache = null;
+        this.recordIndexes = null;
+    }
+
+    /**
+     * stop running functions in an independent record
+     */
+    public void endRecord() {
+        this.recordIndex = -1;
+        this.recordRandomSource = null;
+        this.recordCache = null;
+        this.recordIndexes = null;
+    }
+
+    /**
+     * give this context indexes of its own instead of the ones shared by all unseeded renders
+     * @param indexes the indexes by name
+     */
+    public void setIndexes(final Map<String, IndexHolder> indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * get the indexes of this context
+     * @return the indexes by name or null if the shared indexes are used
+     */
+    public Map<String, IndexHolder> getIndexes() {
+        return indexes;
+    }
+
+    /**
+     * set the values the indexes take first in the current record, for a record that is rendered
+     * apart from the records before it.  Cleared when the next record starts.
+     * @param firstIndexes the first values by index name
+     */
+    public void setRecordIndexes(final Map<String, Integer> firstIndexes) {
+        recordIndexes = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : firstIndexes.entrySet()) {
+            recordIndexes.put(entry.getKey(), new MutableInt(entry.getValue().intValue()));
+        }
+    }
+
+    /**
+     * if the current record has its own values for an index
+     * @param name the name of the index
+     * @return true if {@link #setRecordIndexes(Map)} gave it a first value
+     */
+    public boolean hasRecordIndex(final String name) {
+        return recordIndexes != null && recordIndexes.containsKey(name);
+    }
+
+    /**
+     * get the next value of an index in the current record
+     * @param name the name of the index
+     * @return the next value
+     */
+    public int nextRecordIndex(final String name) {
+        MutableInt index = recordIndexes.get(name);
+        int value = index.intValue();
+        index.increment();
+        return value;
+    }
+
+    /**
+     * if functions are running in an independent record
+     * @return true if {@link #startRecord(long, RandomSource)} was called
+     */
+    public boolean isRecordScoped() {
+        return recordIndex >= 0;
+    }
+
+    /**
+     * get the position of the current record in the output
+     * @return the record index or -1 if functions are not running in an independent record
+     */
+    public long getRecordIndex() {
+        return recordIndex;
+    }
+
+    /**
+     * get values stored for the current record
+     * @return the values by key
+     */
+    public Map<String, String> getRecordCache() {
+        if (recordCache == null) {
+            recordCache = new HashMap<>();
+        }
+        return recordCache;
+    }
+}
@@ -0,0 +1,162 @@
+package com.synectiks.json.datagenerator.functions;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * the methods registered under one function name.  Every method is turned into a
+ * {@link MethodHandle} that takes the arguments as a <code>String[]</code> when it is registered,
+ * so a call is an array lookup by the number of arguments followed by a direct invocation of the
+ * handle.  The dispatcher of a name never changes once created; registering another class with
+ * the same name updates it in place, so callers may keep a reference to it.  Methods that take
+ * {@link Supplier}s instead of strings receive their arguments unevaluated.
+ */
+final class FunctionDispatcher {
+
+    private static final MethodType INVOKER_TYPE =
+        MethodType.methodType(String.class, String[].class);
+    private static final MethodType LAZY_INVOKER_TYPE =
+        MethodType.methodType(String.class, Supplier[].class);
+    private static final Invoker[] NO_INVOKERS = new Invoker[0];
+
+    private volatile Invoker[] fixedArityInvokers = NO_INVOKERS;
+    private volatile Invoker varArgsInvoker;
+
+    /**
+     * register a method, replacing the method that takes the same arguments if there is one
+     * @param method the method annotated with {@link FunctionInvocation}
+     * @param instance the instance of the function class the method is called on
+     * @param pure if the function class is {@link Function#pure()}
+     * @throws IllegalAccessException if the method can not be accessed
+     */
+    synchronized void register(final Method method, final Object instance, final boolean pure)
+        throws IllegalAccessException {
+        method.setAccessible(true);
+        MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(instance);
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length == 1 && parameterTypes[0].isArray()) {
+            boolean lazy = parameterTypes[0] == Supplier[].class;
+            varArgsInvoker = new Invoker(method,
+                handle.asType(lazy ? LAZY_INVOKER_TYPE : INVOKER_TYPE), lazy, pure);
+            return;
+        }
+        boolean lazy = parameterTypes.length > 0 && parameterTypes[0] == Supplier.class;
+        handle = handle.asSpreader(lazy ? Supplier[].class : String[].class, parameterTypes.length)
+            .asType(lazy ? LAZY_INVOKER_TYPE : INVOKER_TYPE);
+        Invoker[] invokers = fixedArityInvokers;
+        if (invokers.length <= parameterTypes.length) {
+            invokers = Arrays.copyOf(invokers, parameterTypes.length + 1);
+        } else {
+            invokers = invokers.clone();
+        }
+        invokers[parameterTypes.length] = new Invoker(method, handle, lazy, pure);
+        fixedArityInvokers = invokers;
+    }
+
+    /**
+     * find the method that is called for a number of arguments: the method that takes exactly
+     * that many strings, otherwise the var-arg method
+     * @param arity the number of arguments
+     * @return the method
+     * @throws IllegalArgumentException if there is no method for the number of arguments
+     */
+    Method getMethod(final int arity) {
+        return getInvoker(arity).method;
+    }
+
+    /**
+     * if the method that is called for a number of arguments takes its arguments unevaluated
+     * @param arity the number of arguments
+     * @return true if the method takes {@link Supplier}s
+     * @throws IllegalArgumentException if there is no method for the number of arguments
+     */
+    boolean isLazy(final int arity) {
+        return getInvoker(arity).lazy;
+    }
+
+    /**
+     * if the method that is called for a number of arguments belongs to a pure function
+     * @param arity the number of arguments
+     * @return true if the function is {@link Function#pure()}
+     * @throws IllegalArgumentException if there is no method for the number of arguments
+     */
+    boolean isPure(final int arity) {
+        return getInvoker(arity).pure;
+    }
+
+    /**
+     * call the function
+     * @param arguments the arguments; may be null for no arguments
+     * @return the result of the function
+     * @throws InvocationTargetException if the function throws an exception
+     * @throws IllegalArgumentException if there is no method for the number of arguments
+     */
+    String invoke(final String[] arguments) throws InvocationTargetException {
+        final Invoker invoker = getInvoker(arguments == null ? 0 : arguments.length);
+        try {
+            if (invoker.lazy) {
+                return (String) invoker.handle.invokeExact(LazyArgument.of(arguments));
+            }
+            return (String) invoker.handle.invokeExact(arguments);
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * call a function that takes its arguments unevaluated
+     * @param arguments the arguments
+     * @return the result of the function
+     * @throws InvocationTargetException if the function or the evaluation of an argument throws
+     *         an exception
+     * @throws IllegalAccessException if an argument throws it while being evaluated
+     * @throws IllegalArgumentException if there is no method for the number of arguments
+     */
+    String invokeLazy(final LazyArgument[] arguments)
+        throws InvocationTargetException, IllegalAccessException {
+        final Invoker invoker = getInvoker(arguments.length);
+        try {
+            return (String) invoker.handle.invokeExact((Supplier[]) arguments);
+        } catch (LazyArgument.EvaluationException e) {
+            e.rethrowCause();
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    private Invoker getInvoker(final int arity) {
+        Invoker[] invokers = fixedArityInvokers;
+        Invoker invoker = arity < invokers.length ? invokers[arity] : null;
+        if (invoker == null) {
+            invoker = varArgsInvoker;
+        }
+        if (invoker == null) {
+            throw new IllegalArgumentException("could not find method to invoke.");
+        }
+        return invoker;
+    }
+
+    /**
+     * a registered method and the handle that calls it
+     */
+    private static final class Invoker {
+        private final Method method;
+        private final MethodHandle handle;
+        private final boolean lazy;
+        private final boolean pure;
+
+        private Invoker(final Method method, final MethodHandle handle, final boolean lazy,
+            final boolean pure) {
+            this.method = method;
+            this.handle = handle;
+            this.lazy = lazy;
+            this.pure = pure;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.synectiks.json.datagenerator.functions;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * a parsed function argument or function call that can be evaluated any number of times
+ */
+public interface FunctionExpression {
+
+    /**
+     * evaluate the expression
+     *
+     * @param context the state of the current generation run
+     * @return the result of the expression
+     * @throws InvocationTargetException if there is an issue running a function
+     * @throws IllegalAccessException if there is a issue getting a hold of the method responsible for
+     *         serving a function
+     */
+    String evaluate(FunctionContext context) throws InvocationTargetException, IllegalAccessException;
+}
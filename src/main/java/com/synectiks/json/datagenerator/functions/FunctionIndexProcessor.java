@@ -0,0 +1,94 @@
+package com.synectiks.json.datagenerator.functions;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.apache.commons.lang.StringUtils.isEmpty;
+
+/**
+ * annotation processor that writes the {@link #INDEX_RESOURCE} index of the
+ * classes annotated with {@link Function}, so the registry can find the class of a function by
+ * its name without scanning the classpath.  Every line of the index is
+ * <code>functionName=className</code>.
+ */
+@SupportedAnnotationTypes("com.synectiks.json.datagenerator.functions.Function")
+public class FunctionIndexProcessor extends AbstractProcessor {
+
+    /**
+     * the location of the index on the classpath
+     */
+    public static final String INDEX_RESOURCE = "META-INF/json-data-generator/functions";
+
+    private final Map<String, String> functionClasses = new TreeMap<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations,
+        final RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Function.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                continue;
+            }
+            String className = processingEnv.getElementUtils()
+                .getBinaryName((TypeElement) element).toString();
+            for (String name : element.getAnnotation(Function.class).name()) {
+                if (isEmpty(name)) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        Function.class.getName() + " annotation must have name attribute populated",
+                        element);
+                    continue;
+                }
+                String previous = functionClasses.put(name, className);
+                if (previous != null && !previous.equals(className)) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "function " + name + " is already defined by " + previous, element);
+                }
+            }
+        }
+        if (roundEnv.processingOver() && !functionClasses.isEmpty()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject resource = processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+            try (Writer writer = new OutputStreamWriter(resource.openOutputStream(),
+                StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, String> entry : functionClasses.entrySet()) {
+                    writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "could not write " + INDEX_RESOURCE + ": " + e.getMessage());
+        }
+    }
+}
@@ -8,7 +8,10 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * helper annotation to register methods on a function class
+ * helper annotation to register methods on a function class.  The parameters of a method are
+ * either all strings or a single string var-arg, or, for functions that only need some of their
+ * arguments, all {@link java.util.function.Supplier}s or a single supplier var-arg; suppliers are
+ * only evaluated when the function calls them.
  */
 @Target({ElementType.METHOD})
 @Retention(RetentionPolicy.RUNTIME)
@@ -2,60 +2,72 @@ package com.synectiks.json.datagenerator.functions;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
-import org.apache.commons.lang.builder.EqualsBuilder;
-import org.apache.commons.lang.builder.HashCodeBuilder;
-import org.reflections.Reflections;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.net.URL;
 import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 import static org.apache.commons.lang.StringUtils.isEmpty;
-import static org.apache.commons.lang.Validate.notNull;
 
 /**
  * Class responsible for registering functions so that they can be used from within the data
- * generator
+ * generator.  Looking up a function never takes a lock once it has been used; registering takes
+ * the lock of the registry.  Besides the shared instance, a generator can use its own registry
+ * so custom functions registered for one job are not seen by others.
  */
 public final class FunctionRegistry {
 
-  private static FunctionRegistry INSTANCE;
-
-  private final Map<FunctionInvocationHolder,
-      MethodAndObjectHolder> functionInvocationHolderMethodConcurrentHashMap =
-      new ConcurrentHashMap<>();
-  private final Map<Method, Object> methodInstanceMap = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, FunctionDispatcher> dispatchers = new ConcurrentHashMap<>();
+  private final Map<String, String> indexedFunctionClasses = new HashMap<>();
   private final Set<String> nonOverridableFunctionNames = new HashSet<>();
 
   /**
-   * this is a singleton so private constructor
+   * create a registry with the built in functions that is independent of the shared instance.
+   * The built in functions are listed in the {@link FunctionIndexProcessor#INDEX_RESOURCE} index
+   * written when this library is built; a function class is only loaded the first time its
+   * function is used.
    */
-  private FunctionRegistry() {
-    Reflections reflections = new Reflections(getClass().getPackage().getName() + ".impl");
-    Set<Class<? extends Object>> functionClasses =
-            reflections.getTypesAnnotatedWith(Function.class);
-    for (Class<?> clazz: functionClasses) {
-      registerClass(clazz);
+  public FunctionRegistry() {
+    try {
+      Enumeration<URL> indexes =
+          getClass().getClassLoader().getResources(FunctionIndexProcessor.INDEX_RESOURCE);
+      while (indexes.hasMoreElements()) {
+        Properties index = new Properties();
+        try (InputStream inputStream = indexes.nextElement().openStream()) {
+          index.load(inputStream);
+        }
+        for (String functionName : index.stringPropertyNames()) {
+          if (!indexedFunctionClasses.containsKey(functionName)) {
+            indexedFunctionClasses.put(functionName, index.getProperty(functionName));
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(
+          "could not read " + FunctionIndexProcessor.INDEX_RESOURCE, e);
     }
   }
 
   /**
-   * get an instance of this singleton
+   * get the shared instance
    *
-   * @return the singleton
+   * @return the shared registry
    */
-  public static synchronized FunctionRegistry getInstance() {
-    if (INSTANCE == null) {
-      INSTANCE = new FunctionRegistry();
-    }
-    return INSTANCE;
+  public static FunctionRegistry getInstance() {
+    return InstanceHolder.INSTANCE;
   }
 
   /**
@@ -63,23 +75,56 @@ public final class FunctionRegistry {
    *
    * @param clazz the class that has the {@link Function} and {@link FunctionInvocation}
    */
-  public void registerClass(final Class<?> clazz) {
+  public synchronized void registerClass(final Class<?> clazz) {
     Function annotation = clazz.getAnnotation(Function.class);
-    checkClassValidity(clazz, annotation);
-    try {
+    if (annotation != null) {
       for (String annotationName : annotation.name()) {
+        loadIndexedFunction(annotationName);
+      }
+    }
+    registerFunctions(clazz, annotation, annotation != null ? annotation.name() : new String[0]);
+  }
+
+  /**
+   * register the function class listed in the index for a function name, unless it was
+   * registered already.  the name stays in the index until its class is registered, so a load
+   * that fails is tried again on the next use instead of losing the function
+   *
+   * @param functionName the function name
+   */
+  private synchronized void loadIndexedFunction(final String functionName) {
+    String className = indexedFunctionClasses.get(functionName);
+    if (className == null) {
+      return;
+    }
+    try {
+      Class<?> clazz = Class.forName(className, true, getClass().getClassLoader());
+      registerFunctions(clazz, clazz.getAnnotation(Function.class), new String[] {functionName});
+    } catch (ClassNotFoundException e) {
+      throw new IllegalArgumentException(e);
+    }
+    indexedFunctionClasses.remove(functionName);
+  }
+
+  private void registerFunctions(final Class<?> clazz, final Function annotation,
+      final String[] functionNames) {
+    checkClassValidity(clazz, annotation, functionNames);
+    try {
+      for (String annotationName : functionNames) {
         Object instance = clazz.newInstance();
+        FunctionDispatcher existing = dispatchers.get(annotationName);
+        FunctionDispatcher dispatcher = existing != null ? existing : new FunctionDispatcher();
         for (final Method method : clazz.getDeclaredMethods()) {
           if (method.isAnnotationPresent(FunctionInvocation.class)) {
             checkMethodValidity(method);
-            MethodAndObjectHolder methodAndObjectHolder =
-                new MethodAndObjectHolder(method, instance);
-            functionInvocationHolderMethodConcurrentHashMap.put(
-                new FunctionInvocationHolder(annotationName, method.getParameterTypes()),
-                methodAndObjectHolder);
-            methodInstanceMap.put(method, instance);
+            dispatcher.register(method, instance, annotation.pure());
           }
         }
+        if (existing == null) {
+          //lookups do not take the lock, so a new dispatcher is only published once it has
+          //every method of the class
+          dispatchers.putIfAbsent(annotationName, dispatcher);
+        }
         if (!annotation.overridable()) {
           nonOverridableFunctionNames.add(annotationName);
         }
@@ -92,45 +137,43 @@ public final class FunctionRegistry {
   }
 
   private void checkMethodValidity(final Method method) {
-    int stringClassesCount = Iterables.size(
-        Iterables.filter(Arrays.asList(method.getParameterTypes()), new Predicate<Class<?>>() {
-          @Override
-          public boolean apply(final Class<?> aClass) {
-            return aClass == String.class;
-          }
-        }));
-
-    int stringArrayClassesCount = Iterables.size(
-        Iterables.filter(Arrays.asList(method.getParameterTypes()), new Predicate<Class<?>>() {
-          @Override
-          public boolean apply(final Class<?> aClass) {
-            return aClass == String[].class;
-          }
-        }));
-
     if (!String.class.isAssignableFrom(method.getReturnType())) {
       throw new IllegalArgumentException("method " + method.getName() + " on class "
           + method.getDeclaringClass().getName() + " must return type String");
     }
 
-    if ((stringClassesCount != method.getParameterTypes().length
-        && method.getParameterTypes().length > 1)
-        || (stringArrayClassesCount != 1 && stringClassesCount == 0
-            && method.getParameterTypes().length == 1)) {
+    if (!hasParameterTypes(method, String.class, String[].class)
+        && !hasParameterTypes(method, Supplier.class, Supplier[].class)) {
       throw new IllegalArgumentException(
           "for method " + method.getName() + " on class " + method.getDeclaringClass().getName()
               + ": all method parameters need to be a String or a single"
-              + " String var-arg parameter");
+              + " String var-arg parameter, or all of them a Supplier or a single Supplier"
+              + " var-arg parameter");
     }
   }
 
-  private void checkClassValidity(final Class<?> clazz, final Function annotation) {
+  private boolean hasParameterTypes(final Method method, final Class<?> parameterType,
+      final Class<?> varArgType) {
+    int parameterCount = Iterables.size(
+        Iterables.filter(Arrays.asList(method.getParameterTypes()), new Predicate<Class<?>>() {
+          @Override
+          public boolean apply(final Class<?> aClass) {
+            return aClass == parameterType;
+          }
+        }));
+    return parameterCount == method.getParameterTypes().length
+        || (method.getParameterTypes().length == 1
+            && method.getParameterTypes()[0] == varArgType);
+  }
+
+  private void checkClassValidity(final Class<?> clazz, final Function annotation,
+      final String[] functionNames) {
     if (annotation == null) {
       throw new IllegalArgumentException(
           clazz.getName() + " must be annotated with " + Function.class.getName());
     }
 
-    for (String annotationName : annotation.name()) {
+    for (String annotationName : functionNames) {
       if (isEmpty(annotationName)) {
         throw new IllegalArgumentException(Function.class.getName() + "annotation on class"
             + clazz.getName() + " annotation must have name attribute populated");
@@ -182,20 +225,26 @@ public final class FunctionRegistry {
    */
   public String executeFunction(final String functionName, final String... arguments)
       throws InvocationTargetException, IllegalAccessException {
-    Method method = getMethod(functionName, arguments);
-    return executeMethod(method, arguments);
+    return getDispatcher(functionName).invoke(arguments);
   }
 
-  private String executeMethod(final Method method, final String... arguments)
-      throws InvocationTargetException, IllegalAccessException {
-    Object instance = methodInstanceMap.get(method);
-    if (method.getParameterTypes().length == 1
-        && method.getParameterTypes()[0].equals(String[].class)) {
-      return method.invoke(instance, new Object[] {arguments}).toString();
-    } else {
-      return method.invoke(instance, arguments).toString();
+  /**
+   * find the methods registered for a function name
+   *
+   * @param functionName the function name
+   * @return the dispatcher that calls the methods
+   * @throws IllegalArgumentException if no function has the name
+   */
+  FunctionDispatcher getDispatcher(final String functionName) {
+    FunctionDispatcher dispatcher = dispatchers.get(functionName);
+    if (dispatcher == null) {
+      loadIndexedFunction(functionName);
+      dispatcher = dispatchers.get(functionName);
     }
-
+    if (dispatcher == null) {
+      throw new IllegalArgumentException("could not find method to invoke.");
+    }
+    return dispatcher;
   }
 
   /**
@@ -208,111 +257,29 @@ public final class FunctionRegistry {
    */
   public Method getMethod(final String functionName, final String... arguments)
       throws IllegalArgumentException {
-    final List<Class<?>> classList = new ArrayList<>();
-    if (arguments != null) {
-      for (String argument : arguments) {
-        if (argument != null) {
-          classList.add(argument.getClass());
-        }
-      }
-    }
-
-    MethodAndObjectHolder holder = null;
-    try {
-      holder = getHolder(functionName, classList);
-    } catch (IllegalAccessException e) {
-      throw new IllegalArgumentException(e);
-    }
-
-    if (holder == null) {
-      throw new IllegalArgumentException("could not find method to invoke.");
-    }
-
-    return holder.getMethod();
-  }
-
-  private MethodAndObjectHolder getHolder(final String functionName, final List<Class<?>> classList)
-      throws IllegalAccessException {
-    MethodAndObjectHolder holder = functionInvocationHolderMethodConcurrentHashMap.get(
-        new FunctionInvocationHolder(functionName, classList.toArray(new Class[classList.size()])));
-
-    if (holder == null) {
-      holder = functionInvocationHolderMethodConcurrentHashMap
-          .get(new FunctionInvocationHolder(functionName, new Class[] {String[].class}));
-    }
-
-    return holder;
+    return getDispatcher(functionName).getMethod(arguments == null ? 0 : arguments.length);
   }
 
-
   /**
-   * helper class thar associates methods (for functions) with the instance of the function class
-   * that should be run
+   * check if a function takes its arguments unevaluated, so that it may not evaluate all of them
+   *
+   * @param functionName name of the function
+   * @param arity the number of arguments
+   * @return true if the method called for that many arguments takes {@link
+   *         java.util.function.Supplier}s
+   * @throws IllegalArgumentException if there is no function with the name or no method for the
+   *         number of arguments
    */
-  private static final class MethodAndObjectHolder {
-    private final Method method;
-    private final Object instance;
-
-    private MethodAndObjectHolder(final Method method, final Object instance) {
-      this.method = method;
-      this.instance = instance;
-    }
-
-    public Method getMethod() {
-      return method;
-    }
-
-    @SuppressWarnings("unused")
-    public Object getInstance() {
-      return instance;
-    }
+  public boolean isLazy(final String functionName, final int arity)
+      throws IllegalArgumentException {
+    return getDispatcher(functionName).isLazy(arity);
   }
 
   /**
-   * helper class that holds function names and parameter types
+   * creates the shared instance the first time it is asked for, without locking afterwards
    */
-  private static final class FunctionInvocationHolder {
-    private final String functionName;
-    private final Class<?>[] parameterTypes;
-
-    private FunctionInvocationHolder(final String functionName, final Class<?>[] parameterTypes) {
-      notNull(functionName, "a function name must be provided");
-      notNull(parameterTypes, "parameter types must be provided");
-      this.functionName = functionName;
-      this.parameterTypes = parameterTypes;
-    }
-
-    @SuppressWarnings("unused")
-    public String getFunctionName() {
-      return functionName;
-    }
-
-    @SuppressWarnings("unused")
-    public Class<?>[] getParameterTypes() {
-      return parameterTypes;
-    }
-
-    @Override
-    public boolean equals(final Object obj) {
-      if (obj == null) {
-        return false;
-      }
-      if (obj == this) {
-        return true;
-      }
-      if (obj.getClass() != getClass()) {
-        return false;
-      }
-      FunctionInvocationHolder functionInvocationHolder = (FunctionInvocationHolder) obj;
-      return new EqualsBuilder().append(functionName, functionInvocationHolder.functionName)
-          .append(parameterTypes, functionInvocationHolder.parameterTypes).isEquals();
-    }
-
-    @Override
-    @SuppressWarnings("checkstyle:magicnumber")
-    public int hashCode() {
-      return new HashCodeBuilder(5, 33).append(functionName).append(parameterTypes).toHashCode();
-    }
+  private static final class InstanceHolder {
+    private static final FunctionRegistry INSTANCE = new FunctionRegistry();
   }
 
 }
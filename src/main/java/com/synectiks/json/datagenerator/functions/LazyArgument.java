@@ -0,0 +1,90 @@
+package com.synectiks.json.datagenerator.functions;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.Supplier;
+
+import static org.apache.commons.lang.Validate.notNull;
+
+/**
+ * a function argument that is only evaluated when a function that takes {@link Supplier}s asks
+ * for it.  The argument is evaluated at most once; later calls return the same value.
+ */
+final class LazyArgument implements Supplier<String> {
+
+    private static final LazyArgument[] NO_ARGUMENTS = new LazyArgument[0];
+
+    private final FunctionExpression expression;
+    private final FunctionContext context;
+    private String value;
+
+    /**
+     * constructor
+     * @param expression the argument expression
+     * @param context the context the expression is evaluated in
+     */
+    LazyArgument(final FunctionExpression expression, final FunctionContext context) {
+        notNull(expression, "expression can not be null");
+        this.expression = expression;
+        this.context = context;
+    }
+
+    private LazyArgument(final String value) {
+        this.expression = null;
+        this.context = null;
+        this.value = value;
+    }
+
+    /**
+     * wrap arguments that were already evaluated
+     * @param values the argument values; may be null for no arguments
+     * @return the arguments
+     */
+    static Supplier[] of(final String[] values) {
+        if (values == null) {
+            return NO_ARGUMENTS;
+        }
+        LazyArgument[] arguments = new LazyArgument[values.length];
+        for (int i = 0; i < values.length; i++) {
+            arguments[i] = new LazyArgument(values[i]);
+        }
+        return arguments;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws EvaluationException if the expression can not be evaluated
+     */
+    @Override
+    public String get() {
+        if (value == null && expression != null) {
+            try {
+                value = expression.evaluate(context);
+            } catch (InvocationTargetException | IllegalAccessException e) {
+                throw new EvaluationException(e);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * carries the checked exception of an argument out of {@link Supplier#get()}
+     */
+    static final class EvaluationException extends RuntimeException {
+
+        private EvaluationException(final Exception cause) {
+            super(cause);
+        }
+
+        /**
+         * throw the exception the argument failed with
+         * @throws InvocationTargetException if a function of the argument failed
+         * @throws IllegalAccessException if a function of the argument could not be accessed
+         */
+        void rethrowCause() throws InvocationTargetException, IllegalAccessException {
+            if (getCause() instanceof InvocationTargetException) {
+                throw (InvocationTargetException) getCause();
+            }
+            throw (IllegalAccessException) getCause();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.synectiks.json.datagenerator.functions;
+
+import static org.apache.commons.lang.Validate.notNull;
+
+/**
+ * {@link FunctionExpression} for a string or number literal passed as a function argument
+ */
+public final class LiteralExpression implements FunctionExpression {
+
+    private final String value;
+
+    /**
+     * constructor
+     * @param value the literal value with any surrounding quotes already removed
+     */
+    public LiteralExpression(final String value) {
+        notNull(value, "value can not be null");
+        this.value = value;
+    }
+
+    /**
+     * get the literal value
+     * @return the value
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String evaluate(final FunctionContext context) {
+        return value;
+    }
+
+    /**
+     * the value in double quotes
+     * @return the string form of this expression
+     */
+    @Override
+    public String toString() {
+        return '"' + value + '"';
+    }
+
+}
@@ -0,0 +1,182 @@
+package com.synectiks.json.datagenerator.functions;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * the source of randomness for all functions.  Backed by a {@link SplittableRandom}, so an instance
+ * must only be used by one thread at a time; use {@link #split()} to hand an independent stream to
+ * another thread.  Functions get their source from {@link #current()}: the seeded source of the
+ * render they run in, or an unseeded source owned by the current thread.
+ */
+public final class RandomSource {
+
+    private static final ThreadLocal<RandomSource> THREAD_RANDOM_SOURCE =
+        new ThreadLocal<RandomSource>() {
+            @Override
+            protected RandomSource initialValue() {
+                return new RandomSource(new SplittableRandom());
+            }
+        };
+    private static final long UUID_VERSION_MASK = 0xFFFFFFFFFFFF0FFFL;
+    private static final long UUID_VERSION_4 = 0x0000000000004000L;
+    private static final long UUID_VARIANT_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final long UUID_VARIANT_IETF = 0x8000000000000000L;
+    private static final int BYTES_PER_LONG = 8;
+    private static final int BITS_PER_BYTE = 8;
+    private static final int FLOAT_UNUSED_BITS = 8;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long MIX_MULTIPLIER_1 = 0xBF58476D1CE4E5B9L;
+    private static final long MIX_MULTIPLIER_2 = 0x94D049BB133111EBL;
+    private static final int MIX_SHIFT_1 = 30;
+    private static final int MIX_SHIFT_2 = 27;
+    private static final int MIX_SHIFT_3 = 31;
+    private static final float FLOAT_UNIT = 0x1.0p-24f;
+
+    private final SplittableRandom random;
+
+    /**
+     * random source that always produces the same values for the same seed
+     * @param seed the seed
+     */
+    public RandomSource(final long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    private RandomSource(final SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * random source for a position within a seeded run.  The result only depends on the seed and
+     * the path, so the same element gets the same values no matter which thread renders it or
+     * what was rendered before it.
+     * @param seed the seed of the run
+     * @param path the position, for example the repeat and the element within it
+     * @return the random source
+     */
+    public static RandomSource derive(final long seed, final long... path) {
+        long hash = mix64(seed);
+        for (long element : path) {
+            hash = mix64(hash ^ mix64(element + GOLDEN_GAMMA));
+        }
+        return new RandomSource(hash);
+    }
+
+    private static long mix64(final long value) {
+        long z = (value ^ (value >>> MIX_SHIFT_1)) * MIX_MULTIPLIER_1;
+        z = (z ^ (z >>> MIX_SHIFT_2)) * MIX_MULTIPLIER_2;
+        return z ^ (z >>> MIX_SHIFT_3);
+    }
+
+    /**
+     * get the random source for the function that is running on this thread
+     * @return the random source
+     */
+    public static RandomSource current() {
+        FunctionContext context = FunctionContext.current();
+        return context != null ? context.getRandomSource() : forCurrentThread();
+    }
+
+    /**
+     * get the unseeded random source owned by this thread
+     * @return the random source
+     */
+    public static RandomSource forCurrentThread() {
+        return THREAD_RANDOM_SOURCE.get();
+    }
+
+    /**
+     * create a new random source that shares no state with this one
+     * @return the new random source
+     */
+    public RandomSource split() {
+        return new RandomSource(random.split());
+    }
+
+    /**
+     * random integer between 0 (inclusive) and bound (exclusive)
+     * @param bound the upper bound
+     * @return the random integer
+     */
+    public int nextInt(final int bound) {
+        return random.nextInt(bound);
+    }
+
+    /**
+     * random integer between origin (inclusive) and bound (exclusive)
+     * @param origin the lower bound
+     * @param bound the upper bound
+     * @return the random integer
+     */
+    public int nextInt(final int origin, final int bound) {
+        return random.nextInt(origin, bound);
+    }
+
+    /**
+     * random long between origin (inclusive) and bound (exclusive)
+     * @param origin the lower bound
+     * @param bound the upper bound
+     * @return the random long
+     */
+    public long nextLong(final long origin, final long bound) {
+        return random.nextLong(origin, bound);
+    }
+
+    /**
+     * random long
+     * @return the random long
+     */
+    public long nextLong() {
+        return random.nextLong();
+    }
+
+    /**
+     * random double between 0 (inclusive) and 1 (exclusive)
+     * @return the random double
+     */
+    public double nextDouble() {
+        return random.nextDouble();
+    }
+
+    /**
+     * random float between 0 (inclusive) and 1 (exclusive)
+     * @return the random float
+     */
+    public float nextFloat() {
+        return (random.nextInt() >>> FLOAT_UNUSED_BITS) * FLOAT_UNIT;
+    }
+
+    /**
+     * random boolean
+     * @return the random boolean
+     */
+    public boolean nextBoolean() {
+        return random.nextBoolean();
+    }
+
+    /**
+     * fill an array with random bytes
+     * @param bytes the array to fill
+     */
+    public void nextBytes(final byte[] bytes) {
+        int i = 0;
+        while (i < bytes.length) {
+            long value = random.nextLong();
+            for (int n = Math.min(bytes.length - i, BYTES_PER_LONG); n > 0; n--) {
+                bytes[i++] = (byte) value;
+                value >>= BITS_PER_BYTE;
+            }
+        }
+    }
+
+    /**
+     * random version 4 uuid
+     * @return the uuid
+     */
+    public UUID nextUUID() {
+        long mostSignificantBits = (random.nextLong() & UUID_VERSION_MASK) | UUID_VERSION_4;
+        long leastSignificantBits = (random.nextLong() & UUID_VARIANT_MASK) | UUID_VARIANT_IETF;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+}
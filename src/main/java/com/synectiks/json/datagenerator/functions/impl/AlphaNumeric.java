@@ -1,7 +1,5 @@
 package com.synectiks.json.datagenerator.functions.impl;
 
-import org.apache.commons.lang.RandomStringUtils;
-
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 
@@ -11,6 +9,9 @@ import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 @Function(name = "alphaNumeric")
 public class AlphaNumeric {
 
+    private static final char[] ALPHANUMERIC =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
     /**
      * Function call with min and max arguments
      * @param min minium length
@@ -46,7 +47,7 @@ public class AlphaNumeric {
     }
 
     private String getRandomAlphabetic(final int length) {
-        return RandomStringUtils.randomAlphanumeric(length);
+        return FunctionUtils.getRandomString(length, ALPHANUMERIC);
     }
 
 }
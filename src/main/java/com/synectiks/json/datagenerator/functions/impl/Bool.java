@@ -2,6 +2,7 @@ package com.synectiks.json.datagenerator.functions.impl;
 
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.RandomSource;
 
 /**
  * random boolean with given probability
@@ -14,7 +15,7 @@ import com.synectiks.json.datagenerator.functions.FunctionInvocation;
      * @return the result
      */
     @FunctionInvocation @SuppressWarnings("checkstyle:magicnumber") public String getRandomBool() {
-        return Boolean.valueOf(Math.random() < 0.5).toString();
+        return Boolean.valueOf(RandomSource.current().nextDouble() < 0.5).toString();
     }
 
     /**
@@ -24,6 +25,7 @@ import com.synectiks.json.datagenerator.functions.FunctionInvocation;
      * @return the result
      */
     @FunctionInvocation public String getRandomBool(final String probability) {
-        return Boolean.valueOf(Math.random() < Float.parseFloat(probability)).toString();
+        return Boolean.valueOf(
+            RandomSource.current().nextDouble() < Float.parseFloat(probability)).toString();
     }
 }
@@ -6,7 +6,7 @@ import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 /**
  * concat strings together
  */
-@Function(name = "concat")
+@Function(name = "concat", pure = true)
 public class Concat {
 
     /**
@@ -8,7 +8,7 @@ import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 /**
  * random company name
  */
-@Function(name = "countriesList")
+@Function(name = "countriesList", pure = true)
 @SuppressWarnings("checkstyle:linelength")
 public class CountriesList {
   private static final String COUNTRIES_LIST =
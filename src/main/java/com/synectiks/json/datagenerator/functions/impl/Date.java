@@ -7,6 +7,7 @@ import java.util.Calendar;
 
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.RandomSource;
 
 /**
  * functions with dates
@@ -53,7 +54,8 @@ public class Date {
             Long beginLong = cal.getTimeInMillis();
             cal.setTime(formatter.parse(endDate));
             Long endLong = cal.getTimeInMillis();
-            long randomLong = (long) (beginLong + Math.random() * (endLong - beginLong));
+            long randomLong = (long) (beginLong
+                + RandomSource.current().nextDouble() * (endLong - beginLong));
             cal.setTimeInMillis(randomLong);
             return dateFormat.format(new java.util.Date(randomLong));
         } catch (ParseException e) {
@@ -2,6 +2,7 @@ package com.synectiks.json.datagenerator.functions.impl;
 
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.RandomSource;
 
 /**
  * function for random first name
@@ -29,7 +30,7 @@ public class FirstName {
     @FunctionInvocation
     @SuppressWarnings("checkstyle:magicnumber")
     public String firstName() {
-        boolean isMale = (Math.random() < 0.5);
+        boolean isMale = (RandomSource.current().nextDouble() < 0.5);
         return firstName(isMale ? "male" : "female");
     }
 }
@@ -1,6 +1,6 @@
 package com.synectiks.json.datagenerator.functions.impl;
 
-import java.util.Random;
+import com.synectiks.json.datagenerator.functions.RandomSource;
 
 /**
  * Function utilities
@@ -14,8 +14,6 @@ public final class FunctionUtils {
 
     }
 
-    private static final Random RANDOM = new Random();
-
     /**
      * return a random element in array
      * @param array the array with elements to choose from
@@ -33,7 +31,22 @@ public final class FunctionUtils {
      * @return random integer
      */
     public static int getRandomInteger(final Integer min, final Integer max) {
-        return RANDOM.nextInt(max - min) + min;
+        return RandomSource.current().nextInt(min, max);
+    }
+
+    /**
+     * get a random string of characters from an alphabet
+     * @param length length of the string
+     * @param alphabet the characters to choose from
+     * @return random string
+     */
+    public static String getRandomString(final int length, final char[] alphabet) {
+        RandomSource randomSource = RandomSource.current();
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = alphabet[randomSource.nextInt(alphabet.length)];
+        }
+        return new String(chars);
     }
 
 }
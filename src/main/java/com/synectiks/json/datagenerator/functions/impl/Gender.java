@@ -2,6 +2,7 @@ package com.synectiks.json.datagenerator.functions.impl;
 
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.RandomSource;
 
 /**
  * function to return a random gender
@@ -20,7 +21,7 @@ public class Gender {
     }
 
     private String getMaleOrFemale(final float probability) {
-        return (Math.random() < probability) ? "male" : "female";
+        return (RandomSource.current().nextDouble() < probability) ? "male" : "female";
     }
 
     /**
@@ -30,6 +31,7 @@ public class Gender {
      */
     @FunctionInvocation
     public String gender(final String probability) {
-        return Boolean.valueOf(Math.random() < Float.parseFloat(probability)).toString();
+        return Boolean.valueOf(
+            RandomSource.current().nextDouble() < Float.parseFloat(probability)).toString();
     }
 }
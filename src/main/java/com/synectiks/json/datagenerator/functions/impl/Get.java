@@ -3,6 +3,7 @@ package com.synectiks.json.datagenerator.functions.impl;
 import static org.apache.commons.lang.Validate.notNull;
 
 import com.synectiks.json.datagenerator.functions.Function;
+import com.synectiks.json.datagenerator.functions.FunctionContext;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 
 /**
@@ -12,13 +13,19 @@ import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 public class Get {
 
     /**
-     * get a value from the cache
+     * get a value from the cache.  Inside a record that is rendered independently (see
+     * {@link FunctionContext#isRecordScoped()}) values stored in that record are found first.
      * @param key the key used to put the value in the cache
      * @return the value that was found in the cache with the key
      */
     @FunctionInvocation
     public String get(final String key) {
-        String value = Put.CACHE.get(key);
+        FunctionContext context = FunctionContext.current();
+        String value = context != null && context.isRecordScoped()
+            ? context.getRecordCache().get(key) : null;
+        if (value == null) {
+            value = Put.CACHE.get(key);
+        }
         notNull(value, "could not find a value for key: " + key);
         return value;
     }
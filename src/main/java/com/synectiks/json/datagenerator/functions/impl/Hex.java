@@ -1,9 +1,8 @@
 package com.synectiks.json.datagenerator.functions.impl;
 
-import java.util.Random;
-
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.RandomSource;
 
 /**
  * lowercase hex string
@@ -11,8 +10,6 @@ import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 @Function(name = "hex")
 public class Hex {
 
-    private final Random random = new Random();
-
     /**
      * random hex string for random 16 bytes
      * @return the result
@@ -35,7 +32,7 @@ public class Hex {
 
     private String getHexString(final int byteSize) {
         byte[]  resBuf = new byte[byteSize];
-        random.nextBytes(resBuf);
+        RandomSource.current().nextBytes(resBuf);
         StringBuilder sb = new StringBuilder();
         for (byte b : resBuf) {
             sb.append(String.format("%02x", b));
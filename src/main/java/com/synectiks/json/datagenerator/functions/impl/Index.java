@@ -1,6 +1,7 @@
 package com.synectiks.json.datagenerator.functions.impl;
 
 import com.synectiks.json.datagenerator.functions.Function;
+import com.synectiks.json.datagenerator.functions.FunctionContext;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 import com.synectiks.json.datagenerator.impl.IndexHolder;
 
@@ -8,7 +9,10 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * an incrementing index integer
+ * an incrementing index integer.  Every call with the same name returns the next value, in the
+ * order the calls appear in the output, so rendering with a seed or with more than one thread
+ * gives the same values as rendering on one thread.  Unseeded renders share their indexes and
+ * keep counting from one render to the next; a seeded render starts its own.
  */
 @Function(name = "index")
 public class Index {
@@ -25,7 +29,7 @@ public class Index {
      */
     @FunctionInvocation
     public String getIndex() {
-        return getIndex(DEFAULT);
+        return getIndex(Call.of());
     }
 
     /**
@@ -35,11 +39,7 @@ public class Index {
      */
     @FunctionInvocation
     public String getIndex(final String indexName) {
-        try {
-            return getIndex(DEFAULT, Integer.parseInt(indexName));
-        } catch (NumberFormatException e) {
-            return "" + getIndexHolder(indexName).getNextIndex();
-        }
+        return getIndex(Call.of(indexName));
     }
 
     /**
@@ -50,23 +50,124 @@ public class Index {
      */
     @FunctionInvocation
     public String getIndex(final String indexName, final String startingPoint) {
-        return getIndex(indexName, Integer.parseInt(startingPoint));
+        return getIndex(new Call(indexName, Integer.parseInt(startingPoint)));
     }
 
-    private String getIndex(final String indexName, final int startingPoint) {
-        return "" + getIndexHolder(indexName, startingPoint).getNextIndex();
+    private String getIndex(final Call call) {
+        FunctionContext context = FunctionContext.current();
+        if (context != null && context.hasRecordIndex(call.getName())) {
+            return "" + context.nextRecordIndex(call.getName());
+        }
+        return "" + getIndexHolder(holders(context), call.getName(), call.getStartingPoint())
+            .getNextIndex();
     }
 
-    private IndexHolder getIndexHolder(final String indexName) {
-        return getIndexHolder(indexName, 0);
+    /**
+     * take a range of consecutive values of an index at once, e.g. for the elements of a repeat
+     * that are rendered on other threads
+     * @param context the context of the render
+     * @param indexName the name of the index
+     * @param startingPoint the starting point of the index if it has not been used yet
+     * @param count the number of values
+     * @return the first value of the range
+     */
+    public static int reserve(final FunctionContext context, final String indexName,
+        final int startingPoint, final int count) {
+        return getIndexHolder(holders(context), indexName, startingPoint).reserve(count);
+    }
+
+    /**
+     * get the indexes of a render
+     * @param context the context of the render or null
+     * @return the indexes of a seeded render or the shared indexes
+     */
+    static Map<String, IndexHolder> holders(final FunctionContext context) {
+        return context != null && context.getIndexes() != null ? context.getIndexes()
+            : STRING_INDEX_HOLDER_MAP;
+    }
+
+    /**
+     * check the format {@link Integer#parseInt(String)} accepts without throwing an exception,
+     * which is expensive to create in deeply nested templates
+     */
+    private static boolean isInteger(final String value) {
+        int start = value.startsWith("-") || value.startsWith("+") ? 1 : 0;
+        if (start == value.length()) {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private IndexHolder getIndexHolder(final String indexName, final int startingPoint) {
-        if (STRING_INDEX_HOLDER_MAP.containsKey(indexName)) {
-            return STRING_INDEX_HOLDER_MAP.get(indexName);
+    private static IndexHolder getIndexHolder(final Map<String, IndexHolder> holders,
+        final String indexName, final int startingPoint) {
+        if (holders.containsKey(indexName)) {
+            return holders.get(indexName);
         }
         IndexHolder indexHolder = new IndexHolder(startingPoint);
-        STRING_INDEX_HOLDER_MAP.put(indexName, indexHolder);
+        holders.put(indexName, indexHolder);
         return indexHolder;
     }
+
+    /**
+     * the index a call counts and where it starts
+     */
+    public static final class Call {
+        private final String name;
+        private final int startingPoint;
+
+        private Call(final String name, final int startingPoint) {
+            this.name = name;
+            this.startingPoint = startingPoint;
+        }
+
+        /**
+         * get the index a call with the given arguments counts
+         * @param arguments the arguments of the call
+         * @return the call or null if the function fails for the arguments
+         */
+        public static Call of(final String... arguments) {
+            switch (arguments.length) {
+                case 0:
+                    return new Call(DEFAULT, 0);
+                case 1:
+                    if (isInteger(arguments[0])) {
+                        try {
+                            return new Call(DEFAULT, Integer.parseInt(arguments[0]));
+                        } catch (NumberFormatException e) {
+                            // too large for an int, so it is a name
+                        }
+                    }
+                    return new Call(arguments[0], 0);
+                case 2:
+                    try {
+                        return new Call(arguments[0], Integer.parseInt(arguments[1]));
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * get the name of the index
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * get the value of the index the first time it is used
+         * @return the starting point
+         */
+        public int getStartingPoint() {
+            return startingPoint;
+        }
+    }
 }
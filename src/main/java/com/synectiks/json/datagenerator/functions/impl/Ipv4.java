@@ -1,9 +1,8 @@
 package com.synectiks.json.datagenerator.functions.impl;
 
-import java.util.Random;
-
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.RandomSource;
 
 /**
  * random ipv4 address
@@ -19,7 +18,7 @@ public class Ipv4 {
      */
     @FunctionInvocation
     public String ipv4() {
-        Random rand = new Random();
+        RandomSource rand = RandomSource.current();
         return rand.nextInt(BOUND_MAX_IPV4_NUMBER) + "."
             + rand.nextInt(BOUND_MAX_IPV4_NUMBER) + "." + rand.nextInt(
             BOUND_MAX_IPV4_NUMBER) + "." + rand.nextInt(BOUND_MAX_IPV4_NUMBER);
@@ -2,6 +2,7 @@ package com.synectiks.json.datagenerator.functions.impl;
 
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.RandomSource;
 
 /**
  * random ipv6 address
@@ -30,8 +31,9 @@ public class Ipv6 {
     public String ipV6(final String hexCase) {
         long leftLimit = 1L;
         long rightLimit = Long.MAX_VALUE;
-        long generatedLong1 = leftLimit + (long) (Math.random() * (rightLimit - leftLimit));
-        long generatedLong2 = leftLimit + (long) (Math.random() * (rightLimit - leftLimit));
+        RandomSource randomSource = RandomSource.current();
+        long generatedLong1 = randomSource.nextLong(leftLimit, rightLimit);
+        long generatedLong2 = randomSource.nextLong(leftLimit, rightLimit);
         return longToIP(new long[]{generatedLong1, generatedLong2}, hexCase);
     }
 
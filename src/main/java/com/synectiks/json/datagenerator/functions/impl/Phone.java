@@ -1,10 +1,10 @@
 package com.synectiks.json.datagenerator.functions.impl;
 
 import java.text.DecimalFormat;
-import java.util.Random;
 
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.RandomSource;
 
 /**
  * Random phone number
@@ -19,7 +19,7 @@ public class Phone {
     @FunctionInvocation
     @SuppressWarnings("checkstyle:magicnumber")
     public String phone() {
-        Random rand = new Random();
+        RandomSource rand = RandomSource.current();
         int num1 = (rand.nextInt(7) + 1) * 100 + (rand.nextInt(8) * 10) + rand.nextInt(8);
         int num2 = rand.nextInt(743);
         int num3 = rand.nextInt(10000);
@@ -4,12 +4,14 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.synectiks.json.datagenerator.functions.Function;
+import com.synectiks.json.datagenerator.functions.FunctionContext;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 
 import static org.apache.commons.lang.Validate.notNull;
 
 /**
- * store a value in the cache
+ * store a value in the cache.  Inside a record that is rendered independently (see
+ * {@link FunctionContext#isRecordScoped()}) the value is only stored for that record.
  */
 @Function(name = "put")
 public class Put {
@@ -26,7 +28,12 @@ public class Put {
     public String put(final String key, final String value) {
         notNull(key, "key to put is null");
         notNull(value, "value to put is null");
-        CACHE.put(key, value);
+        FunctionContext context = FunctionContext.current();
+        if (context != null && context.isRecordScoped()) {
+            context.getRecordCache().put(key, value);
+        } else {
+            CACHE.put(key, value);
+        }
         return value;
     }
 
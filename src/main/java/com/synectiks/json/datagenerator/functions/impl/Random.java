@@ -2,6 +2,9 @@ package com.synectiks.json.datagenerator.functions.impl;
 
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.RandomSource;
+
+import java.util.function.Supplier;
 
 /**
  * random item from list
@@ -10,14 +13,15 @@ import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 public class Random {
 
     /**
-     * random item from list:
-     * @param strings options to choose from
+     * random item from list; only the chosen item is evaluated
+     * @param options options to choose from
      * @return the result
      */
+    @SafeVarargs
     @FunctionInvocation
-    public String random(final String... strings) {
-        int randomNum = (int) (Math.random() * strings.length);
-        return strings[randomNum];
+    public final String random(final Supplier<String>... options) {
+        int randomNum = RandomSource.current().nextInt(options.length);
+        return options[randomNum].get();
     }
 
 }
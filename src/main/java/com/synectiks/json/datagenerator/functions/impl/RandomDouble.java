@@ -1,10 +1,10 @@
 package com.synectiks.json.datagenerator.functions.impl;
 
 import java.util.Formatter;
-import java.util.Random;
 
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.RandomSource;
 
 /**
  * get random double in range
@@ -12,10 +12,8 @@ import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 @Function(name = "double")
 public class RandomDouble {
 
-    private static final Random RANDOM = new Random();
-
     private String getRandomDouble(final Double min, final Double max, final String format) {
-        double randomNumber = min + (max - min) * RANDOM.nextDouble();
+        double randomNumber = min + (max - min) * RandomSource.current().nextDouble();
 
         if (format != null) {
             return String.format(format, randomNumber);
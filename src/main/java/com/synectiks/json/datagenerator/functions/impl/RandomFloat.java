@@ -1,10 +1,10 @@
 package com.synectiks.json.datagenerator.functions.impl;
 
 import java.util.Formatter;
-import java.util.Random;
 
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.RandomSource;
 
 /**
  * get random float between min and max
@@ -12,10 +12,8 @@ import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 @Function(name = {"float", "floating"})
 public class RandomFloat {
 
-    private static final Random RANDOM = new Random();
-
     private String getRandomFloat(final Float min, final Float max, final String format) {
-        float randomNumber = min + (max - min) * RANDOM.nextFloat();
+        float randomNumber = min + (max - min) * RandomSource.current().nextFloat();
 
         if (format != null) {
             return String.format(format, randomNumber);
@@ -1,7 +1,5 @@
 package com.synectiks.json.datagenerator.functions.impl;
 
-import java.util.Random;
-
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 
@@ -11,8 +9,6 @@ import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 @Function(name = "integer")
 public class RandomInteger {
 
-    private static final Random RANDOM = new Random();
-
     /**
      * get random integer within range
      * @param min minimum number
@@ -1,13 +1,14 @@
 package com.synectiks.json.datagenerator.functions.impl;
 
-import org.apache.commons.math3.random.RandomDataGenerator;
-
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.RandomSource;
 
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static org.apache.commons.lang.Validate.isTrue;
+
 /**
  * random long within range
  */
@@ -15,7 +16,6 @@ import java.util.regex.Pattern;
 public class RandomLong {
 
     public static final Pattern LONG_PATTERN = Pattern.compile("(\\d+)L");
-    public static final RandomDataGenerator RANDOM_DATA_GENERATOR = new RandomDataGenerator();
 
     /**
      * random long within range
@@ -29,7 +29,11 @@ public class RandomLong {
     }
 
     private String getRandomLong(final Long min, final Long max) {
-        long randomNumber = RANDOM_DATA_GENERATOR.nextLong(min, max);
+        isTrue(min < max, "min must be less than max");
+        //both bounds are inclusive
+        long randomNumber = max < Long.MAX_VALUE
+            ? RandomSource.current().nextLong(min, max + 1)
+            : RandomSource.current().nextLong(min - 1, max) + 1;
         return Long.toString(randomNumber);
     }
 
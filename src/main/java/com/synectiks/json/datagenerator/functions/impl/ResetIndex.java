@@ -1,9 +1,12 @@
 package com.synectiks.json.datagenerator.functions.impl;
 
 import com.synectiks.json.datagenerator.functions.Function;
+import com.synectiks.json.datagenerator.functions.FunctionContext;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 import com.synectiks.json.datagenerator.impl.IndexHolder;
 
+import java.util.Map;
+
 /**
  * reset an index
  */
@@ -26,15 +29,17 @@ public class ResetIndex {
      */
     @FunctionInvocation
     public String resetIndex(final String indexName) {
-        IndexHolder indexHolder = getIndexHolder(indexName);
+        IndexHolder indexHolder = getIndexHolder(Index.holders(FunctionContext.current()),
+            indexName);
         indexHolder.resetIndex();
         return "";
     }
 
 
-    private IndexHolder getIndexHolder(final String indexName) {
-        if (Index.STRING_INDEX_HOLDER_MAP.containsKey(indexName)) {
-            return Index.STRING_INDEX_HOLDER_MAP.get(indexName);
+    private IndexHolder getIndexHolder(final Map<String, IndexHolder> holders,
+        final String indexName) {
+        if (holders.containsKey(indexName)) {
+            return holders.get(indexName);
         }
         throw new IllegalStateException("could not find index with name " + indexName);
     }
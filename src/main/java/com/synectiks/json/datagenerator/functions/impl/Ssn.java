@@ -1,10 +1,10 @@
 package com.synectiks.json.datagenerator.functions.impl;
 
 import java.text.DecimalFormat;
-import java.util.Random;
 
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.RandomSource;
 
 /**
  * random social security number
@@ -12,8 +12,6 @@ import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 @Function(name = "ssn")
 public class Ssn {
 
-    private static final Random RANDOM = new Random();
-
     /**
      * get random social security number
      * @return the result
@@ -21,9 +19,10 @@ public class Ssn {
     @FunctionInvocation
     @SuppressWarnings("checkstyle:magicnumber")
     public String ssn() {
-        int num1 = RANDOM.nextInt(799 - 1) + 1;
-        int num2 = RANDOM.nextInt(99 - 1) + 1;
-        int num3 = RANDOM.nextInt(9999 - 1) + 1;
+        RandomSource random = RandomSource.current();
+        int num1 = random.nextInt(799 - 1) + 1;
+        int num2 = random.nextInt(99 - 1) + 1;
+        int num3 = random.nextInt(9999 - 1) + 1;
 
         DecimalFormat df1 = new DecimalFormat("000");
         DecimalFormat df2 = new DecimalFormat("00");
@@ -6,7 +6,7 @@ import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 /**
  * get substring from other string
  */
-@Function(name = "substring")
+@Function(name = "substring", pure = true)
 public class Substring {
 
     /**
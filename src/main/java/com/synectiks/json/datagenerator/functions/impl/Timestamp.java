@@ -7,6 +7,7 @@ import java.util.Calendar;
 
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.RandomSource;
 
 /**
  * timestamp (milliseconds, between the current time and midnight, January 1, 1970 UTC):
@@ -38,7 +39,8 @@ public class Timestamp {
             Long beginLong = cal.getTimeInMillis();
             cal.setTime(formatter.parse(endDate));
             Long endLong = cal.getTimeInMillis();
-            long randomLong = (long) (beginLong + Math.random() * (endLong - beginLong));
+            long randomLong = (long) (beginLong
+                + RandomSource.current().nextDouble() * (endLong - beginLong));
             return randomLong + "";
         } catch (ParseException e) {
             throw new IllegalArgumentException(e);
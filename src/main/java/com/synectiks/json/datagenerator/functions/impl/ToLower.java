@@ -8,7 +8,7 @@ import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 /**
  * lower case a string
  */
-@Function(name = "toLowerCase")
+@Function(name = "toLowerCase", pure = true)
 public class ToLower {
 
     /**
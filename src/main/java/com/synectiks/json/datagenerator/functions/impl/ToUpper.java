@@ -8,7 +8,7 @@ import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 /**
  * upper case a string
  */
-@Function(name = "toUpperCase")
+@Function(name = "toUpperCase", pure = true)
 public class ToUpper {
 
     /**
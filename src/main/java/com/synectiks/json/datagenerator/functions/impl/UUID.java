@@ -2,6 +2,7 @@ package com.synectiks.json.datagenerator.functions.impl;
 
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.RandomSource;
 
 /**
  * random uuid
@@ -27,7 +28,7 @@ public class UUID {
     @FunctionInvocation
     @SuppressWarnings("checkstyle:magicnumber")
     public String getRandomUUID(final String keepDashes) {
-        String uuid = java.util.UUID.randomUUID().toString();
+        String uuid = RandomSource.current().nextUUID().toString();
 
         if (!Boolean.valueOf(keepDashes)) {
             return uuid.replace("-", "");
@@ -1,33 +1,50 @@
 package com.synectiks.json.datagenerator.impl;
 
 import com.google.common.base.Charsets;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 
-import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.RandomAccessFile;
-import java.io.StringWriter;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
- * {@link OutputStream} that will write to an byte array before overflowing to a file
+ * {@link OutputStream} that will write to memory before overflowing to a file.  Up to
+ * <code>sizeBeforeOverFlow</code> bytes are kept in segments borrowed from a {@link SegmentPool}
+ * as they are needed and never copied.  When that is exceeded the segments are written to a spill
+ * file in the spill directory and returned to the pool, and everything after that goes through one
+ * {@link FileChannel} with positional writes behind a small write buffer; truncation truncates the
+ * channel.  {@link #writeTo(OutputStream)} and {@link #writeTo(WritableByteChannel)} drain the
+ * spill file with {@link FileChannel#transferTo(long, long, WritableByteChannel)} instead of
+ * copying it through the heap.  The spill file is deleted and the segments are returned on
+ * {@link #close()}.
  */
 public class ByteArrayBackupToFileOutputStream extends OutputStream {
 
+    /**
+     * the number of bytes kept in memory before overflowing to a file if none is given
+     */
+    public static final int DEFAULT_SIZE_BEFORE_OVER_FLOW = 1024000;
     private static final int DEFAULT_INITIAL_BUFFER_SIZE = 1028;
-    private static final int DEFAULT_SIZE_BEFORE_OVER_FLOW = 1024000;
-    private byte[] buf;
+    private static final int SPILL_WRITE_BUFFER_SIZE = 8192;
+    private static final int TRANSFER_BUFFER_SIZE = 65536;
 
-    private int count;
     private final int sizeBeforeOverFlow;
-    private File file = null;
-    private FileOutputStream fileOutputStream = null;
+    private final File spillDirectory;
+    private SegmentedOutputStream memory;
+    private Path file;
+    private FileChannel channel;
+    private ByteBuffer spillWriteBuffer;
+    private long bytesOnDisk;
     private long lastMark = 0;
 
     /**
@@ -38,111 +55,226 @@ public class ByteArrayBackupToFileOutputStream extends OutputStream {
     }
 
     /**
-     * constructor
-     * @param initialBufferSize initial buffer size in bytes
+     * constructor that overflows to the default temporary directory
+     * @param initialBufferSize size in bytes of each segment of memory
      * @param sizeBeforeOverFlow size in bytes before overflow to file
      */
     public ByteArrayBackupToFileOutputStream(final int initialBufferSize,
         final int sizeBeforeOverFlow) {
+        this(initialBufferSize, sizeBeforeOverFlow, null);
+    }
+
+    /**
+     * constructor with its own pool of segments
+     * @param initialBufferSize size in bytes of each segment of memory
+     * @param sizeBeforeOverFlow size in bytes before overflow to file
+     * @param spillDirectory the directory the overflow file is created in or null for the
+     *                       default temporary directory
+     */
+    public ByteArrayBackupToFileOutputStream(final int initialBufferSize,
+        final int sizeBeforeOverFlow, final File spillDirectory) {
+        this(newSegmentPool(initialBufferSize), sizeBeforeOverFlow, spillDirectory);
+    }
+
+    /**
+     * constructor that borrows its memory from a pool shared with other buffers
+     * @param segmentPool the pool segments are borrowed from and returned to
+     * @param sizeBeforeOverFlow size in bytes before overflow to file
+     * @param spillDirectory the directory the overflow file is created in or null for the
+     *                       default temporary directory
+     */
+    public ByteArrayBackupToFileOutputStream(final SegmentPool segmentPool,
+        final int sizeBeforeOverFlow, final File spillDirectory) {
+        if (segmentPool == null) {
+            throw new IllegalArgumentException("segmentPool can not be null");
+        }
         if (sizeBeforeOverFlow < 0) {
             throw new IllegalArgumentException(
                 "Negative initial sizeBeforeOverFlow: " + sizeBeforeOverFlow);
         }
-        buf = new byte[initialBufferSize];
         this.sizeBeforeOverFlow = sizeBeforeOverFlow;
+        this.spillDirectory = spillDirectory;
+        this.memory = new SegmentedOutputStream(segmentPool);
     }
 
-    private void ensureCapacity(final int minCapacity) throws IOException {
-        if (buf != null && minCapacity - buf.length > 0 && minCapacity <= sizeBeforeOverFlow) {
-            grow(minCapacity);
-            return;
+    private static SegmentPool newSegmentPool(final int initialBufferSize) {
+        if (initialBufferSize <= 0) {
+            throw new IllegalArgumentException(
+                "initialBufferSize must be greater than 0: " + initialBufferSize);
         }
+        return new SegmentPool(initialBufferSize, 0);
+    }
 
-        if (minCapacity > sizeBeforeOverFlow && file == null) {
-            file = File.createTempFile("temp", "temp");
-            fileOutputStream = new FileOutputStream(file);
-            fileOutputStream.write(buf);
-            buf = null;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void write(final int b) throws IOException {
+        if (channel == null && memory.size() == sizeBeforeOverFlow) {
+            spill();
+        }
+        if (channel != null) {
+            if (!spillWriteBuffer.hasRemaining()) {
+                flushSpillWriteBuffer();
+            }
+            spillWriteBuffer.put((byte) b);
             return;
         }
+        memory.write(b);
     }
 
-    private void grow(final int minCapacity) {
-        // overflow-conscious code
-        int oldCapacity = buf.length;
-        int newCapacity = oldCapacity << 1;
-        if (newCapacity > sizeBeforeOverFlow) {
-            newCapacity = sizeBeforeOverFlow;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void write(final byte[] b, final int off, final int len)
+        throws IOException {
+        if ((off < 0) || (off > b.length) || (len < 0) || ((off + len) - b.length > 0)) {
+            throw new IndexOutOfBoundsException();
         }
-        if (newCapacity - minCapacity < 0) {
-            newCapacity = minCapacity;
+        if (channel == null && len > sizeBeforeOverFlow - memory.size()) {
+            spill();
         }
-        if (newCapacity < 0) {
-            if (minCapacity < 0) { // overflow
-                throw new OutOfMemoryError();
+        if (channel != null) {
+            if (len > spillWriteBuffer.remaining()) {
+                flushSpillWriteBuffer();
+            }
+            if (len >= spillWriteBuffer.capacity()) {
+                writeFully(ByteBuffer.wrap(b, off, len));
+            } else {
+                spillWriteBuffer.put(b, off, len);
             }
-            newCapacity = Integer.MAX_VALUE;
+            return;
         }
-        buf = Arrays.copyOf(buf, newCapacity);
+        memory.write(b, off, len);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public synchronized void write(final int b) throws IOException {
-        ensureCapacity(count + 1);
-        if (buf == null) {
-            fileOutputStream.write(b);
-            return;
+    public synchronized void flush() throws IOException {
+        if (channel != null) {
+            flushSpillWriteBuffer();
         }
-        buf[count] = (byte) b;
-        count += 1;
     }
 
     /**
      * remove one byte from the written outputstream
      * @throws IOException if there is no more buffer to unwrite from
      */
-    public void unwrite() throws IOException {
-        if (count == 0) {
+    public synchronized void unwrite() throws IOException {
+        long length = getLength();
+        if (length == 0) {
             throw new IOException("Pushback buffer overflow");
         }
-        if (buf == null) {
-            @SuppressWarnings("resource") RandomAccessFile randomAccessFile =
-                new RandomAccessFile(file, "rw");
-            randomAccessFile.setLength(file.length() - 1);
-            return;
-        }
+        setLength(length - 1);
+    }
 
+    /**
+     * get the number or bytes written to the {@link OutputStream}
+     * @return the size
+     */
+    public synchronized int size() {
+        return (int) Math.min(getLength(), Integer.MAX_VALUE);
+    }
 
-        buf[--count] = (byte) 0;
+    /**
+     * get the number of bytes held in memory: everything written before the overflow, or the
+     * bytes waiting to be written to the file after it
+     * @return the number of bytes in memory
+     */
+    public synchronized long getBytesInMemory() {
+        return channel == null ? memory.size() : spillWriteBuffer.position();
     }
 
     /**
-     * {@inheritDoc}
+     * get the number of bytes written to the overflow file
+     * @return the number of bytes on disk
      */
-    @Override
-    public synchronized void write(final byte[] b, final int off, final int len)
-        throws IOException {
-        if ((off < 0) || (off > b.length) || (len < 0) || ((off + len) - b.length > 0)) {
-            throw new IndexOutOfBoundsException();
+    public synchronized long getBytesOnDisk() {
+        return bytesOnDisk;
+    }
+
+    /**
+     * if the {@link OutputStream} has overflowed to a file
+     * @return true if the data is in a file
+     */
+    public synchronized boolean isOverflowed() {
+        return channel != null;
+    }
+
+    /**
+     * write everything written so far to another {@link OutputStream}.  After an overflow to a
+     * {@link FileOutputStream} the bytes are moved from the spill file with
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which lets the operating
+     * system copy them without passing them through the heap; other streams are written from
+     * positional reads of the spill file, or from the segments while the data is in memory.
+     * @param outputStream the stream to write to
+     * @return the number of bytes written
+     * @throws IOException if the data can not be read or written
+     */
+    public synchronized long writeTo(final OutputStream outputStream) throws IOException {
+        if (outputStream == null) {
+            throw new IllegalArgumentException("outputStream can not be null");
         }
-        ensureCapacity(count + len);
-        if (buf == null) {
-            fileOutputStream.write(b);
-            return;
+        if (channel == null) {
+            memory.writeTo(outputStream);
+            return memory.size();
         }
-        System.arraycopy(b, off, buf, count, len);
-        count += len;
+        if (outputStream instanceof FileOutputStream) {
+            return writeTo(((FileOutputStream) outputStream).getChannel());
+        }
+        flushSpillWriteBuffer();
+        ByteBuffer byteBuffer = ByteBuffer.allocate(TRANSFER_BUFFER_SIZE);
+        long position = 0;
+        while (position < bytesOnDisk) {
+            byteBuffer.clear();
+            int read = channel.read(byteBuffer, position);
+            if (read < 0) {
+                throw new IOException("spill file is shorter than " + bytesOnDisk + " bytes");
+            }
+            outputStream.write(byteBuffer.array(), 0, read);
+            position += read;
+        }
+        return position;
     }
 
     /**
-     * get the number or bytes written to the {@link OutputStream}
-     * @return the size
+     * write everything written so far to a channel at its current position.  After an overflow
+     * the bytes are moved from the spill file with
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)}; while the data is in memory
+     * the segments are written with one gathering write where the channel supports it.
+     * @param target the channel to write to
+     * @return the number of bytes written
+     * @throws IOException if the data can not be read or written
      */
-    public synchronized int size() {
-        return count;
+    public synchronized long writeTo(final WritableByteChannel target) throws IOException {
+        if (target == null) {
+            throw new IllegalArgumentException("target can not be null");
+        }
+        if (channel == null) {
+            ByteBuffer[] byteBuffers = memory.toByteBuffers();
+            if (target instanceof GatheringByteChannel) {
+                long remaining = memory.size();
+                while (remaining > 0) {
+                    remaining -= ((GatheringByteChannel) target).write(byteBuffers);
+                }
+            } else {
+                for (ByteBuffer byteBuffer : byteBuffers) {
+                    while (byteBuffer.hasRemaining()) {
+                        target.write(byteBuffer);
+                    }
+                }
+            }
+            return memory.size();
+        }
+        flushSpillWriteBuffer();
+        long position = 0;
+        while (position < bytesOnDisk) {
+            position += channel.transferTo(position, bytesOnDisk - position, target);
+        }
+        return position;
     }
 
     /**
@@ -150,18 +282,28 @@ public class ByteArrayBackupToFileOutputStream extends OutputStream {
      */
     @Override
     public synchronized String toString() {
-        if (buf == null) {
-            try {
-                try (InputStream inputStream = new FileInputStream(file)) {
-                    StringWriter writer = new StringWriter();
-                    IOUtils.copy(inputStream, writer, "UTF-8");
-                    return writer.toString();
+        try {
+            if (channel == null) {
+                ByteArrayOutputStream byteArrayOutputStream =
+                    new ByteArrayOutputStream(memory.size());
+                memory.writeTo(byteArrayOutputStream);
+                return byteArrayOutputStream.toString(Charsets.UTF_8.name());
+            }
+            flushSpillWriteBuffer();
+            if (bytesOnDisk > Integer.MAX_VALUE) {
+                throw new IllegalStateException(
+                    "spill file is too large for a String: " + bytesOnDisk + " bytes");
+            }
+            //one positional read of the whole file instead of a stream copy through a buffer
+            ByteBuffer byteBuffer = ByteBuffer.allocate((int) bytesOnDisk);
+            while (byteBuffer.hasRemaining()) {
+                if (channel.read(byteBuffer, byteBuffer.position()) < 0) {
+                    throw new IOException("spill file is shorter than " + bytesOnDisk + " bytes");
                 }
-            } catch (IOException e) {
-                throw new RuntimeException(e);
             }
-        } else {
-            return new String(buf, 0, count, Charsets.UTF_8);
+            return new String(byteBuffer.array(), Charsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
     }
 
@@ -169,26 +311,32 @@ public class ByteArrayBackupToFileOutputStream extends OutputStream {
      * {@inheritDoc}
      */
     @Override
-    public void close() throws IOException {
-        if (fileOutputStream != null) {
-            fileOutputStream.close();
+    public synchronized void close() throws IOException {
+        if (memory != null) {
+            memory.close();
         }
-        if (file != null) {
-            FileUtils.forceDelete(file);
+        if (channel != null) {
+            try {
+                channel.close();
+            } finally {
+                Files.deleteIfExists(file);
+            }
         }
     }
 
     /**
-     * create an {@link InputStream} based on the data written to the {@link OutputStream}
+     * create an {@link InputStream} based on the data written to the {@link OutputStream}.  While
+     * the data is in memory the stream shares its segments rather than copying them, so it must be
+     * read before this {@link OutputStream} is truncated or closed.
      * @return the new {@link InputStream}
-     * @throws IOException if the {@link OutputStream} can not be flushed or closed
+     * @throws IOException if the {@link OutputStream} can not be flushed
      */
-    public InputStream getNewInputStream() throws IOException {
-        if (buf != null) {
-            return new ByteArrayInputStream(Arrays.copyOf(buf, count));
+    public synchronized InputStream getNewInputStream() throws IOException {
+        if (channel == null) {
+            return memory.newInputStream();
         } else {
-            fileOutputStream.flush();
-            return new FileInputStream(file);
+            flushSpillWriteBuffer();
+            return new FileInputStream(file.toFile());
         }
     }
 
@@ -196,7 +344,7 @@ public class ByteArrayBackupToFileOutputStream extends OutputStream {
      * Marks the current position in this input stream.
      * @throws IOException if the length of {@link OutputStream} cannot be retrieved
      */
-    public void mark() throws IOException {
+    public synchronized void mark() throws IOException {
         lastMark = getLength();
     }
 
@@ -205,52 +353,74 @@ public class ByteArrayBackupToFileOutputStream extends OutputStream {
      * last called on this input stream.
      * @throws IOException if the length of {@link OutputStream} cannot be set
      */
-    public void reset() throws IOException {
+    public synchronized void reset() throws IOException {
         if (lastMark <= 0) {
             throw new IOException("mark has not been set yet.");
         }
         setLength(lastMark);
     }
 
-    private void shrink(final int newCapacity) {
-        buf = Arrays.copyOf(buf, newCapacity);
-        count = newCapacity;
-    }
-
     /**
      * set the length of the {@link OutputStream}
      * @param length the length in bytes
-     * @throws IOException if the length is greater than the {@link OutputStream} size
+     * @throws IOException if the overflow file can not be truncated
+     * @throws IllegalStateException if the length is greater than the {@link OutputStream} size
      */
-    public void setLength(final long length) throws IOException {
-        if (buf != null) {
-            if (length > buf.length) {
-                throw new IllegalStateException(
-                    "length: " + length + " is greater than buffer length");
-            }
-            shrink((int) length);
+    public synchronized void setLength(final long length) throws IOException {
+        if (length < 0 || length > getLength()) {
+            throw new IllegalStateException(
+                "length: " + length + " is greater than the length: " + getLength());
+        }
+        if (channel == null) {
+            memory.setLength((int) length);
+        } else if (length >= bytesOnDisk) {
+            spillWriteBuffer.position((int) (length - bytesOnDisk));
         } else {
-            if (length > file.length()) {
-                throw new IllegalStateException(
-                    "length: " + length + " is greater than file length");
-            }
-            @SuppressWarnings("resource") RandomAccessFile randomAccessFile =
-                new RandomAccessFile(file, "rw");
-            randomAccessFile.setLength(length);
-            fileOutputStream = new FileOutputStream(file, true);
+            spillWriteBuffer.clear();
+            channel.truncate(length);
+            bytesOnDisk = length;
         }
-
     }
 
     /**
      * get the byte length of the {@link OutputStream}
      * @return the length in bytes
      */
-    public long getLength() {
-        if (buf != null) {
-            return count;
-        } else {
-            return file.length();
+    public synchronized long getLength() {
+        return channel == null ? memory.size() : bytesOnDisk + spillWriteBuffer.position();
+    }
+
+    private void spill() throws IOException {
+        Path directory = spillDirectory != null ? spillDirectory.toPath()
+            : new File(System.getProperty("java.io.tmpdir")).toPath();
+        file = Files.createTempFile(directory, "json-data-generator", ".spill");
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        spillWriteBuffer = ByteBuffer.allocate(SPILL_WRITE_BUFFER_SIZE);
+        //one gathering write of all segments at the start of the new file
+        ByteBuffer[] byteBuffers = memory.toByteBuffers();
+        long remaining = memory.size();
+        while (remaining > 0) {
+            remaining -= channel.write(byteBuffers);
+        }
+        bytesOnDisk = memory.size();
+        memory.close();
+        memory = null;
+    }
+
+    private void flushSpillWriteBuffer() throws IOException {
+        spillWriteBuffer.flip();
+        writeFully(spillWriteBuffer);
+        spillWriteBuffer.clear();
+    }
+
+    private void writeFully(final ByteBuffer byteBuffer) throws IOException {
+        while (byteBuffer.hasRemaining()) {
+            bytesOnDisk += channel.write(byteBuffer, bytesOnDisk);
         }
     }
 }
@@ -0,0 +1,140 @@
+package com.synectiks.json.datagenerator.impl;
+
+import com.synectiks.json.datagenerator.CompiledTemplate;
+import com.synectiks.json.datagenerator.GenerationResult;
+import com.synectiks.json.datagenerator.JsonDataGeneratorException;
+import com.synectiks.json.datagenerator.RenderOptions;
+import com.synectiks.json.datagenerator.functions.FunctionRegistry;
+
+import org.apache.commons.io.output.CountingOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.apache.commons.lang.Validate.notNull;
+
+/**
+ * default implementation for {@link CompiledTemplate}
+ */
+public final class CompiledTemplateImpl implements CompiledTemplate {
+
+    private final TemplateNode[] nodes;
+    private final boolean hasRepeat;
+    private final FunctionRegistry functionRegistry;
+    private final SegmentPool segmentPool;
+
+    /**
+     * constructor
+     * @param nodes the render plan
+     * @param functionRegistry the registry the functions of the template are looked up in
+     * @param segmentPool the pool render buffers are borrowed from
+     */
+    CompiledTemplateImpl(final List<TemplateNode> nodes, final FunctionRegistry functionRegistry,
+        final SegmentPool segmentPool) {
+        this.functionRegistry = functionRegistry;
+        this.segmentPool = segmentPool;
+        this.nodes = nodes.toArray(new TemplateNode[nodes.size()]);
+        boolean foundRepeat = false;
+        for (TemplateNode node : nodes) {
+            foundRepeat |= node instanceof RepeatNode;
+        }
+        this.hasRepeat = foundRepeat;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GenerationResult render(final OutputStream outputStream)
+        throws JsonDataGeneratorException {
+        return render(outputStream, new RenderOptions());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GenerationResult render(final OutputStream outputStream,
+        final RenderOptions renderOptions) throws JsonDataGeneratorException {
+        notNull(outputStream, "outputStream can not be null");
+        notNull(renderOptions, "renderOptions can not be null");
+        final long start = System.nanoTime();
+        final ForkJoinPool forkJoinPool = renderOptions.getThreads() > 1
+            ? new ForkJoinPool(renderOptions.getThreads()) : null;
+        final CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+        final byte[] encodingBuffer = segmentPool.borrow();
+        try (Utf8EncodingOutputStream encodingOutputStream =
+            new Utf8EncodingOutputStream(countingOutputStream, encodingBuffer)) {
+            RenderContext context = new RenderContext(encodingOutputStream,
+                renderOptions.getSeed(), functionRegistry);
+            final ParallelRepeatRenderer parallelRepeatRenderer = forkJoinPool != null
+                ? new ParallelRepeatRenderer(forkJoinPool, renderOptions.getThreads(),
+                    renderOptions.isOrdered(), segmentPool) : null;
+            for (TemplateNode node : nodes) {
+                if (parallelRepeatRenderer != null && node instanceof RepeatNode) {
+                    parallelRepeatRenderer.render((RepeatNode) node, context);
+                } else {
+                    node.render(context);
+                }
+            }
+            encodingOutputStream.flush();
+            return new GenerationResult(hasRepeat ? context.getRecords() : 1,
+                countingOutputStream.getByteCount(), System.nanoTime() - start,
+                context.getFunctionContext().getFunctionCounts(), renderOptions.getSeed());
+        } catch (IOException e) {
+            throw new JsonDataGeneratorException(e);
+        } finally {
+            segmentPool.release(encodingBuffer);
+            if (forkJoinPool != null) {
+                forkJoinPool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<String> records() {
+        return records(new RenderOptions());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<String> records(final RenderOptions renderOptions) {
+        notNull(renderOptions, "renderOptions can not be null");
+        final Long seed = renderOptions.getSeed();
+        return new Iterable<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return RecordIterator.create(nodes, hasRepeat, seed, functionRegistry);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<String> recordStream() {
+        return recordStream(new RenderOptions());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<String> recordStream(final RenderOptions renderOptions) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+            records(renderOptions).iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
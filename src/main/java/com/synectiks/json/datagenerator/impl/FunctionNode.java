@@ -0,0 +1,50 @@
+package com.synectiks.json.datagenerator.impl;
+
+import com.google.common.base.Charsets;
+import com.synectiks.json.datagenerator.functions.FunctionExpression;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * {@link TemplateNode} for a <code>{{function()}}</code> token.  If the function cannot be run the
+ * token is written out unchanged, just like {@link FunctionReplacingReader} does.
+ */
+final class FunctionNode implements TemplateNode {
+
+    private final FunctionExpression expression;
+    private final byte[] unresolvedBytes;
+
+    /**
+     * constructor
+     * @param expression the parsed function call
+     * @param tokenText the text between the braces of the token
+     */
+    FunctionNode(final FunctionExpression expression, final String tokenText) {
+        this.expression = expression;
+        this.unresolvedBytes = ("{{" + tokenText + "}}").getBytes(Charsets.UTF_8);
+    }
+
+    /**
+     * get the parsed function call
+     * @return the expression
+     */
+    FunctionExpression getExpression() {
+        return expression;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void render(final RenderContext context) throws IOException {
+        final String value;
+        try {
+            value = expression.evaluate(context.getFunctionContext());
+        } catch (InvocationTargetException | IllegalAccessException | RuntimeException e) {
+            context.getOutputStream().write(unresolvedBytes);
+            return;
+        }
+        context.getOutputStream().write(value);
+    }
+}
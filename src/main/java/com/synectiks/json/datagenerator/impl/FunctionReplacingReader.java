@@ -1,21 +1,28 @@
 package com.synectiks.json.datagenerator.impl;
 
 import java.io.IOException;
-import java.io.PushbackReader;
 import java.io.Reader;
 import java.nio.CharBuffer;
+import java.util.Arrays;
 
 import com.synectiks.json.datagenerator.TokenResolver;
 
 /**
- * {@link Reader} capable of finding functions in the reader and running them
+ * {@link Reader} capable of finding functions in the reader and running them.  The source is read
+ * in blocks; literal runs between tokens are copied straight out of the block, so reading through
+ * {@link #read(char[], int, int)} avoids the per-character overhead of {@link #read()}.
  */
 public class FunctionReplacingReader extends Reader {
 
-    private static final int DEFAULT_PUSHBACK_BUFFER_SIZE = 200;
-    private PushbackReader pushbackReader = null;
-    private TokenResolver tokenResolver = null;
-    private StringBuilder tokenNameBuffer = new StringBuilder();
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private final Reader source;
+    private final TokenResolver tokenResolver;
+    private final StringBuilder tokenNameBuffer = new StringBuilder();
+    private final char[] singleCharBuffer = new char[1];
+    private char[] buffer = new char[DEFAULT_BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private boolean endOfStream = false;
     private String tokenValue = null;
     private int tokenValueIndex = 0;
 
@@ -25,8 +32,8 @@ public class FunctionReplacingReader extends Reader {
      * @param resolver the token resolver
      */
     public FunctionReplacingReader(final Reader source, final TokenResolver resolver) {
-        pushbackReader = new PushbackReader(source, DEFAULT_PUSHBACK_BUFFER_SIZE);
-        tokenResolver = resolver;
+        this.source = source;
+        this.tokenResolver = resolver;
     }
 
     /**
@@ -34,7 +41,15 @@ public class FunctionReplacingReader extends Reader {
      */
     @Override
     public int read(final CharBuffer target) throws IOException {
-        throw new RuntimeException("Operation Not Supported");
+        if (!target.hasArray()) {
+            return super.read(target);
+        }
+        int read = read(target.array(), target.arrayOffset() + target.position(),
+            target.remaining());
+        if (read > 0) {
+            target.position(target.position() + read);
+        }
+        return read;
     }
 
     /**
@@ -42,96 +57,138 @@ public class FunctionReplacingReader extends Reader {
      */
     @Override
     public int read() throws IOException {
-        if (this.tokenValue != null) {
-            if (this.tokenValueIndex < this.tokenValue.length()) {
-                return this.tokenValue.charAt(this.tokenValueIndex++);
-            }
-            if (this.tokenValueIndex == this.tokenValue.length()) {
-                this.tokenValue = null;
-                this.tokenValueIndex = 0;
-            }
-        }
+        return read(singleCharBuffer, 0, 1) == -1 ? -1 : singleCharBuffer[0];
+    }
 
-        int data = this.pushbackReader.read();
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(final char[] cbuf) throws IOException {
+        return read(cbuf, 0, cbuf.length);
+    }
 
-        if (data != '{') {
-            return data;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+        if (off < 0 || len < 0 || len > cbuf.length - off) {
+            throw new IndexOutOfBoundsException();
         }
-
-        data = this.pushbackReader.read();
-        if (data != '{') {
-            this.pushbackReader.unread(data);
-            return '{';
+        if (len == 0) {
+            return 0;
         }
-
-        this.tokenNameBuffer.delete(0, this.tokenNameBuffer.length());
-
-        data = this.pushbackReader.read();
-        while (data != -1 && data != '}') {
-
-            if (data == '\\') {
-                data = this.pushbackReader.read();
-                if (data != '}' && data != '{') {
-                    this.tokenNameBuffer.append('\\');
+        int written = 0;
+        while (written < len) {
+            if (tokenValue != null) {
+                int count = Math.min(len - written, tokenValue.length() - tokenValueIndex);
+                tokenValue.getChars(tokenValueIndex, tokenValueIndex + count, cbuf, off + written);
+                written += count;
+                tokenValueIndex += count;
+                if (tokenValueIndex == tokenValue.length()) {
+                    tokenValue = null;
+                    tokenValueIndex = 0;
                 }
+                continue;
+            }
+            if (!ensureAvailable(1)) {
+                break;
+            }
+            int end = Math.min(limit, position + len - written);
+            int i = position;
+            while (i < end && buffer[i] != '{') {
+                i++;
+            }
+            System.arraycopy(buffer, position, cbuf, off + written, i - position);
+            written += i - position;
+            position = i;
+            if (i < end && !scanToken()) {
+                //not a function; the '{' is literal and scanning resumes after it
+                cbuf[off + written++] = '{';
+                position++;
             }
-
-
-            this.tokenNameBuffer.append((char) data);
-            data = this.pushbackReader.read();
         }
+        return written == 0 ? -1 : written;
+    }
 
-        data = this.pushbackReader.read();
-
-        //not a valid function no second '}'
-        if (data != -1 && data != '}') {
-            this.pushbackReader.unread(data);
-            this.pushbackReader.unread('}');
-
-            char[] chars = tokenNameBuffer.toString().toCharArray();
-
-            for (int i = chars.length - 1; i >= 0; i--) {
-                this.pushbackReader.unread(chars[i]);
+    /**
+     * read the token that starts at the '{' at the current position and queue its resolved value.
+     * @return false if there is no valid token at the current position
+     */
+    private boolean scanToken() throws IOException {
+        if (!ensureAvailable(2) || buffer[position + 1] != '{') {
+            return false;
+        }
+        tokenNameBuffer.setLength(0);
+        int offset = 2;
+        while (ensureAvailable(offset + 1) && buffer[position + offset] != '}') {
+            char c = buffer[position + offset];
+            if (c == '\\') {
+                offset++;
+                if (!ensureAvailable(offset + 1)) {
+                    tokenNameBuffer.append('\\');
+                    break;
+                }
+                c = buffer[position + offset];
+                if (c != '}' && c != '{') {
+                    tokenNameBuffer.append('\\');
+                }
             }
-
-            this.pushbackReader.unread('{');
-            this.tokenNameBuffer.delete(0, this.tokenNameBuffer.length());
-            return '{';
+            tokenNameBuffer.append(c);
+            offset++;
         }
+        if (ensureAvailable(offset + 1)) {
+            offset++;
+            if (ensureAvailable(offset + 1)) {
+                //not a valid function no second '}'
+                if (buffer[position + offset] != '}') {
+                    return false;
+                }
+                offset++;
+            }
+        }
+        position += offset;
 
+        String tokenName = tokenNameBuffer.toString();
         try {
-            this.tokenValue = this.tokenResolver
-                    .resolveToken(this.tokenNameBuffer.toString());
+            tokenValue = tokenResolver.resolveToken(tokenName);
         } catch (IllegalArgumentException e) {
-            this.tokenValue = null;
+            tokenValue = null;
         }
-
-        if (this.tokenValue == null) {
-            this.tokenValue = "{{" + this.tokenNameBuffer.toString() + "}}";
+        if (tokenValue == null) {
+            tokenValue = "{{" + tokenName + "}}";
         }
-
-        if (this.tokenValue.length() == 0) {
-            return read();
+        if (tokenValue.length() == 0) {
+            tokenValue = null;
         }
-        return this.tokenValue.charAt(this.tokenValueIndex++);
-
-
+        tokenValueIndex = 0;
+        return true;
     }
 
     /**
-     * {@inheritDoc}
+     * make sure that at least count characters past the current position are buffered,
+     * compacting and growing the buffer when needed.
+     * @return false if the source ended first
      */
-    @Override
-    public int read(final char[] cbuf) throws IOException {
-        throw new RuntimeException("Operation Not Supported");
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public int read(final char[] cbuf, final int off, final int len) throws IOException {
-        throw new RuntimeException("Operation Not Supported");
+    private boolean ensureAvailable(final int count) throws IOException {
+        while (limit - position < count && !endOfStream) {
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                position = 0;
+            }
+            if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int read = source.read(buffer, limit, buffer.length - limit);
+            if (read == -1) {
+                endOfStream = true;
+            } else {
+                limit += read;
+            }
+        }
+        return limit - position >= count;
     }
 
     /**
@@ -139,15 +196,7 @@ public class FunctionReplacingReader extends Reader {
      */
     @Override
     public void close() throws IOException {
-        this.pushbackReader.close();
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public long skip(final long n) throws IOException {
-        throw new RuntimeException("Operation Not Supported");
+        this.source.close();
     }
 
     /**
@@ -155,7 +204,7 @@ public class FunctionReplacingReader extends Reader {
      */
     @Override
     public boolean ready() throws IOException {
-        return this.pushbackReader.ready();
+        return tokenValue != null || position < limit || this.source.ready();
     }
 
     /**
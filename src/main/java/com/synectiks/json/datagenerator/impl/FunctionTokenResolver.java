@@ -1,30 +1,132 @@
 package com.synectiks.json.datagenerator.impl;
 
 
-import com.google.common.base.Charsets;
 import com.synectiks.json.datagenerator.TokenResolver;
-import com.synectiks.json.datagenerator.parser.FunctionParser;
+import com.synectiks.json.datagenerator.functions.FunctionContext;
+import com.synectiks.json.datagenerator.functions.FunctionExpression;
+import com.synectiks.json.datagenerator.functions.FunctionRegistry;
+import com.synectiks.json.datagenerator.functions.LiteralExpression;
+import com.synectiks.json.datagenerator.parser.FunctionCallParser;
+import com.synectiks.json.datagenerator.parser.ParseException;
 
-import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.commons.lang.Validate.isTrue;
+import static org.apache.commons.lang.Validate.notNull;
 
 /**
- * {@link TokenResolver} implementation that will try to run the functions for the tockens
+ * {@link TokenResolver} implementation that will try to run the functions for the tockens.  Each
+ * distinct token text is parsed once; the parsed call is kept in a bounded least recently used
+ * cache and evaluated again for every later occurrence of the same text.
  */
 public class FunctionTokenResolver implements TokenResolver {
 
+    public static final int DEFAULT_MAX_CACHE_SIZE = 1024;
+    private static final FunctionExpression UNPARSEABLE = new LiteralExpression("");
+    private final Map<String, FunctionExpression> cache;
+    private final FunctionRegistry functionRegistry;
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    /**
+     * resolver that caches up to {@link #DEFAULT_MAX_CACHE_SIZE} parsed tokens
+     */
+    public FunctionTokenResolver() {
+        this(DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    /**
+     * resolver with a custom cache size
+     * @param maxCacheSize the maximum number of parsed tokens to keep; 0 disables caching
+     */
+    public FunctionTokenResolver(final int maxCacheSize) {
+        this(maxCacheSize, FunctionRegistry.getInstance());
+    }
+
+    /**
+     * resolver with a custom cache size that looks functions up in the given registry
+     * @param maxCacheSize the maximum number of parsed tokens to keep; 0 disables caching
+     * @param functionRegistry the registry functions are looked up in
+     */
+    public FunctionTokenResolver(final int maxCacheSize, final FunctionRegistry functionRegistry) {
+        isTrue(maxCacheSize >= 0, "maxCacheSize can not be negative");
+        notNull(functionRegistry, "functionRegistry can not be null");
+        this.functionRegistry = functionRegistry;
+        this.cache = new LinkedHashMap<String, FunctionExpression>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                final Map.Entry<String, FunctionExpression> eldest) {
+                return size() > maxCacheSize;
+            }
+        };
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public String resolveToken(final CharSequence s) {
+        final String tokenText = s.toString();
+        final FunctionExpression expression = getExpression(tokenText);
+        if (expression == UNPARSEABLE) {
+            throw new IllegalArgumentException("cannot parse function: " + tokenText);
+        }
+        FunctionContext context = FunctionContext.current();
+        try {
+            return expression.evaluate(
+                context != null ? context : new FunctionContext(null, functionRegistry));
+        } catch (InvocationTargetException | IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException("cannot parse function: " + tokenText, e);
+        }
+    }
+
+    private FunctionExpression getExpression(final String tokenText) {
+        FunctionExpression expression;
+        synchronized (cache) {
+            expression = cache.get(tokenText);
+        }
+        if (expression != null) {
+            cacheHits.incrementAndGet();
+            return expression;
+        }
+        cacheMisses.incrementAndGet();
         try {
-            FunctionParser functionParser = new FunctionParser(
-                new ByteArrayInputStream(s.toString().getBytes(Charsets.UTF_8)));
-            return functionParser.Parse();
-        } catch (Throwable e) {
-            throw new IllegalArgumentException(new StringBuilder("cannot parse function: ")
-                .append(s).toString(), e);
+            expression = FunctionCallParser.parse(tokenText).fold(functionRegistry);
+        } catch (ParseException e) {
+            expression = UNPARSEABLE;
+        }
+        synchronized (cache) {
+            cache.put(tokenText, expression);
         }
+        return expression;
+    }
 
+    /**
+     * get the number of tokens that were resolved with an already parsed call
+     * @return the number of cache hits
+     */
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * get the number of tokens that had to be parsed
+     * @return the number of cache misses
+     */
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    /**
+     * get the number of parsed tokens that are cached
+     * @return the cache size
+     */
+    public int getCacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
     }
 }
@@ -0,0 +1,180 @@
+package com.synectiks.json.datagenerator.impl;
+
+import com.synectiks.json.datagenerator.functions.FunctionCallExpression;
+import com.synectiks.json.datagenerator.functions.FunctionContext;
+import com.synectiks.json.datagenerator.functions.FunctionExpression;
+import com.synectiks.json.datagenerator.functions.FunctionRegistry;
+import com.synectiks.json.datagenerator.functions.LiteralExpression;
+import com.synectiks.json.datagenerator.functions.impl.Index;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the number of <code>index()</code> calls every element of a repeat makes, by index name.  When
+ * it is the same for every element the values an element gets do not depend on rendering the
+ * elements before it, so the elements can be rendered on other threads and still get the values
+ * they would get when rendered in order.  It is not known when an element calls an index in a
+ * repeat of random length, with a name that is not a literal or in an argument that may not be
+ * evaluated, or when it resets an index.
+ */
+final class IndexCalls {
+
+    private static final String INDEX = "index";
+    private static final String RESET_INDEX = "resetIndex";
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+    private final Map<String, Integer> startingPoints = new HashMap<>();
+    private boolean known = true;
+
+    private IndexCalls() {
+    }
+
+    /**
+     * count the index calls of an element of a repeat
+     * @param repeatNode the repeat
+     * @param functionRegistry the registry the functions of the template are looked up in
+     * @return the calls or null if they are not the same for every element
+     */
+    static IndexCalls of(final RepeatNode repeatNode, final FunctionRegistry functionRegistry) {
+        IndexCalls indexCalls = new IndexCalls();
+        indexCalls.addNodes(repeatNode.getBody(), 1, functionRegistry);
+        return indexCalls.known ? indexCalls : null;
+    }
+
+    /**
+     * take the index values of a number of elements from the indexes of a render
+     * @param context the function context of the render
+     * @param times the number of elements
+     * @return the value every index takes first in the first element
+     */
+    Map<String, Integer> reserve(final FunctionContext context, final int times) {
+        Map<String, Integer> firstIndexes = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            firstIndexes.put(entry.getKey(), Index.reserve(context, entry.getKey(),
+                startingPoints.get(entry.getKey()), entry.getValue() * times));
+        }
+        return firstIndexes;
+    }
+
+    /**
+     * get the values the indexes take first in an element
+     * @param firstIndexes the values for the first element from {@link #reserve}
+     * @param element the position of the element
+     * @return the first values by index name
+     */
+    Map<String, Integer> forElement(final Map<String, Integer> firstIndexes, final int element) {
+        Map<String, Integer> elementIndexes = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            elementIndexes.put(entry.getKey(),
+                firstIndexes.get(entry.getKey()) + entry.getValue() * element);
+        }
+        return elementIndexes;
+    }
+
+    private void addNodes(final TemplateNode[] nodes, final long times,
+        final FunctionRegistry functionRegistry) {
+        for (TemplateNode node : nodes) {
+            if (node instanceof FunctionNode) {
+                addExpression(((FunctionNode) node).getExpression(), times, functionRegistry);
+            } else if (node instanceof RepeatNode) {
+                RepeatNode repeatNode = (RepeatNode) node;
+                if (repeatNode.getMinTimes() == repeatNode.getMaxTimes()) {
+                    addNodes(repeatNode.getBody(), times * repeatNode.getMinTimes(),
+                        functionRegistry);
+                } else {
+                    int countsBefore = counts.size();
+                    long callsBefore = calls();
+                    addNodes(repeatNode.getBody(), times, functionRegistry);
+                    known &= counts.size() == countsBefore && calls() == callsBefore;
+                }
+            }
+        }
+    }
+
+    /**
+     * add the calls of an expression, which evaluates its arguments from left to right before
+     * the function is called
+     */
+    private void addExpression(final FunctionExpression expression, final long times,
+        final FunctionRegistry functionRegistry) {
+        if (!(expression instanceof FunctionCallExpression)) {
+            return;
+        }
+        FunctionCallExpression call = (FunctionCallExpression) expression;
+        List<FunctionExpression> arguments = call.getArguments();
+        boolean lazy;
+        try {
+            lazy = functionRegistry.isLazy(call.getFunctionName(), arguments.size());
+        } catch (IllegalArgumentException e) {
+            //the call fails before its arguments are evaluated
+            return;
+        }
+        if (lazy) {
+            for (FunctionExpression argument : arguments) {
+                known &= !callsIndex(argument);
+            }
+            return;
+        }
+        for (FunctionExpression argument : arguments) {
+            addExpression(argument, times, functionRegistry);
+        }
+        if (RESET_INDEX.equals(call.getFunctionName())) {
+            known = false;
+        } else if (INDEX.equals(call.getFunctionName())) {
+            String[] values = new String[arguments.size()];
+            for (int i = 0; i < values.length; i++) {
+                if (!(arguments.get(i) instanceof LiteralExpression)) {
+                    known = false;
+                    return;
+                }
+                values[i] = ((LiteralExpression) arguments.get(i)).getValue();
+            }
+            Index.Call indexCall = Index.Call.of(values);
+            if (indexCall != null) {
+                add(indexCall, times);
+            }
+        }
+    }
+
+    private static boolean callsIndex(final FunctionExpression expression) {
+        if (!(expression instanceof FunctionCallExpression)) {
+            return false;
+        }
+        FunctionCallExpression call = (FunctionCallExpression) expression;
+        if (INDEX.equals(call.getFunctionName()) || RESET_INDEX.equals(call.getFunctionName())) {
+            return true;
+        }
+        for (FunctionExpression argument : call.getArguments()) {
+            if (callsIndex(argument)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(final Index.Call indexCall, final long times) {
+        if (times == 0) {
+            return;
+        }
+        Integer count = counts.get(indexCall.getName());
+        long total = (count != null ? count : 0) + times;
+        if (total > Integer.MAX_VALUE) {
+            known = false;
+            return;
+        }
+        counts.put(indexCall.getName(), (int) total);
+        if (!startingPoints.containsKey(indexCall.getName())) {
+            startingPoints.put(indexCall.getName(), indexCall.getStartingPoint());
+        }
+    }
+
+    private long calls() {
+        long calls = 0;
+        for (int count : counts.values()) {
+            calls += count;
+        }
+        return calls;
+    }
+}
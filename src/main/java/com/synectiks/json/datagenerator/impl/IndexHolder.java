@@ -25,6 +25,15 @@ public class IndexHolder {
         return index.getNextNumber();
     }
 
+    /**
+     * take a number of consecutive indexes at once
+     * @param count the number of indexes
+     * @return the first of them
+     */
+    public int reserve(final int count) {
+        return index.reserve(count);
+    }
+
     /**
      * reset the index
      */
@@ -54,6 +63,19 @@ public class IndexHolder {
             setValue(startingPoint);
         }
 
+        /**
+         * get the next number for this index; then add a count
+         * @param count the count
+         * @return the number
+         */
+        public int reserve(final int count) {
+            try {
+                return toInteger();
+            } finally {
+                add(count);
+            }
+        }
+
         /**
          * get the next number for this index; then increment
          * @return
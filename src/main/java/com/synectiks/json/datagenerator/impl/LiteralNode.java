@@ -0,0 +1,29 @@
+package com.synectiks.json.datagenerator.impl;
+
+import com.google.common.base.Charsets;
+
+import java.io.IOException;
+
+/**
+ * {@link TemplateNode} for template text that is copied to the output as is
+ */
+final class LiteralNode implements TemplateNode {
+
+    private final byte[] bytes;
+
+    /**
+     * constructor
+     * @param text the text to write
+     */
+    LiteralNode(final String text) {
+        this.bytes = text.getBytes(Charsets.UTF_8);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void render(final RenderContext context) throws IOException {
+        context.getOutputStream().write(bytes);
+    }
+}
@@ -0,0 +1,30 @@
+package com.synectiks.json.datagenerator.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link TemplateNode} for a run of template text that is written straight from the memory
+ * mapping of the template file
+ */
+final class MappedLiteralNode implements TemplateNode {
+
+    private final ByteBuffer bytes;
+
+    /**
+     * constructor
+     * @param bytes the UTF-8 bytes to write; only read through duplicates, so one node can be
+     *              rendered by several threads
+     */
+    MappedLiteralNode(final ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void render(final RenderContext context) throws IOException {
+        context.getOutputStream().write(bytes.duplicate());
+    }
+}
@@ -0,0 +1,203 @@
+package com.synectiks.json.datagenerator.impl;
+
+import com.synectiks.json.datagenerator.functions.FunctionContext;
+import com.synectiks.json.datagenerator.functions.FunctionRegistry;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * renders the elements of an outermost {@link RepeatNode} on a thread pool.  Elements are split
+ * into chunks that are rendered into their own buffers and then written to the output, either in
+ * element order or as they complete.  Only a few chunks per thread are in flight at any time so
+ * memory use does not grow with the number of elements, and chunk buffers are made of segments
+ * borrowed from a {@link SegmentPool} and returned once the chunk is written.  The values of
+ * <code>index()</code> are taken for all elements up front, so every element gets the values it
+ * would get when rendered in order; a repeat whose elements do not all make the same index calls
+ * (see {@link IndexCalls}) is rendered in order on the calling thread instead.
+ */
+final class ParallelRepeatRenderer {
+
+    private static final int MAX_CHUNK_SIZE = 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int IN_FLIGHT_CHUNKS_PER_THREAD = 2;
+    private final ExecutorService executorService;
+    private final int parallelism;
+    private final boolean ordered;
+    private final SegmentPool segmentPool;
+
+    /**
+     * constructor
+     * @param executorService the pool that renders chunks
+     * @param parallelism the number of threads in the pool
+     * @param ordered if chunks are written in element order
+     * @param segmentPool the pool chunk buffers are borrowed from
+     */
+    ParallelRepeatRenderer(final ExecutorService executorService, final int parallelism,
+        final boolean ordered, final SegmentPool segmentPool) {
+        this.executorService = executorService;
+        this.parallelism = parallelism;
+        this.ordered = ordered;
+        this.segmentPool = segmentPool;
+    }
+
+    /**
+     * render all elements of a repeat followed by its trailer
+     * @param repeatNode the outermost repeat
+     * @param context the render state of the calling thread
+     * @throws IOException if the output can not be written
+     */
+    void render(final RepeatNode repeatNode, final RenderContext context) throws IOException {
+        final FunctionRegistry functionRegistry =
+            context.getFunctionContext().getFunctionRegistry();
+        final IndexCalls indexCalls = IndexCalls.of(repeatNode, functionRegistry);
+        if (indexCalls == null) {
+            repeatNode.render(context);
+            return;
+        }
+        final int times = repeatNode.nextTimes(context);
+        final long firstRecord = context.getRecords();
+        final Map<String, Integer> firstIndexes =
+            indexCalls.reserve(context.getFunctionContext(), times);
+        final int chunkSize = Math.max(1,
+            Math.min(MAX_CHUNK_SIZE, times / (parallelism * CHUNKS_PER_THREAD)));
+        final int maxInFlight = parallelism * IN_FLIGHT_CHUNKS_PER_THREAD;
+        final CompletionService<RenderedChunk> completionService =
+            new ExecutorCompletionService<>(executorService);
+        final Deque<Future<RenderedChunk>> inFlight = new ArrayDeque<>();
+        int nextStart = 0;
+        boolean first = true;
+        try {
+            while (nextStart < times || !inFlight.isEmpty()) {
+                while (nextStart < times && inFlight.size() < maxInFlight) {
+                    int end = (int) Math.min(times, (long) nextStart + chunkSize);
+                    ChunkTask task = new ChunkTask(repeatNode, firstRecord, nextStart, end,
+                        indexCalls, firstIndexes, context.getSeed(), functionRegistry,
+                        segmentPool);
+                    inFlight.add(ordered
+                        ? executorService.submit(task) : completionService.submit(task));
+                    nextStart = end;
+                }
+                final Future<RenderedChunk> done;
+                if (ordered) {
+                    done = inFlight.poll();
+                } else {
+                    done = completionService.take();
+                    inFlight.remove(done);
+                }
+                RenderedChunk chunk = done.get();
+                if (!first) {
+                    context.getOutputStream().write(repeatNode.getSeparator());
+                }
+                first = false;
+                try {
+                    chunk.bytes.writeTo(context.getOutputStream());
+                } finally {
+                    chunk.bytes.close();
+                }
+                context.getFunctionContext().merge(chunk.functionContext);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while rendering in parallel");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            for (Future<RenderedChunk> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+        context.getOutputStream().write(repeatNode.getTrailer());
+        context.addRecords(times);
+    }
+
+    /**
+     * renders a range of elements into a buffer
+     */
+    private static final class ChunkTask implements Callable<RenderedChunk> {
+        private final RepeatNode repeatNode;
+        private final long firstRecord;
+        private final int start;
+        private final int end;
+        private final IndexCalls indexCalls;
+        private final Map<String, Integer> firstIndexes;
+        private final Long seed;
+        private final FunctionRegistry functionRegistry;
+        private final SegmentPool segmentPool;
+
+        private ChunkTask(final RepeatNode repeatNode, final long firstRecord, final int start,
+            final int end, final IndexCalls indexCalls, final Map<String, Integer> firstIndexes,
+            final Long seed, final FunctionRegistry functionRegistry,
+            final SegmentPool segmentPool) {
+            this.repeatNode = repeatNode;
+            this.firstRecord = firstRecord;
+            this.start = start;
+            this.end = end;
+            this.indexCalls = indexCalls;
+            this.firstIndexes = firstIndexes;
+            this.seed = seed;
+            this.functionRegistry = functionRegistry;
+            this.segmentPool = segmentPool;
+        }
+
+        @Override
+        public RenderedChunk call() throws IOException {
+            SegmentedOutputStream bytes = new SegmentedOutputStream(segmentPool);
+            byte[] encodingBuffer = segmentPool.borrow();
+            boolean rendered = false;
+            try (Utf8EncodingOutputStream outputStream =
+                new Utf8EncodingOutputStream(bytes, encodingBuffer)) {
+                RenderContext chunkContext = new RenderContext(outputStream, seed,
+                    functionRegistry);
+                for (int i = start; i < end; i++) {
+                    if (i > start) {
+                        outputStream.write(repeatNode.getSeparator());
+                    }
+                    chunkContext.startRecord(repeatNode.getOutermostIndex(), i, firstRecord + i);
+                    chunkContext.getFunctionContext().setRecordIndexes(
+                        indexCalls.forElement(firstIndexes, i));
+                    repeatNode.renderElement(chunkContext);
+                }
+                outputStream.flush();
+                rendered = true;
+                return new RenderedChunk(bytes, chunkContext.getFunctionContext());
+            } finally {
+                segmentPool.release(encodingBuffer);
+                if (!rendered) {
+                    bytes.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * the output and function counts of a chunk
+     */
+    private static final class RenderedChunk {
+        private final SegmentedOutputStream bytes;
+        private final FunctionContext functionContext;
+
+        private RenderedChunk(final SegmentedOutputStream bytes,
+            final FunctionContext functionContext) {
+            this.bytes = bytes;
+            this.functionContext = functionContext;
+        }
+    }
+}
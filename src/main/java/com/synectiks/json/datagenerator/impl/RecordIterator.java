@@ -0,0 +1,148 @@
+package com.synectiks.json.datagenerator.impl;
+
+import com.google.common.base.Charsets;
+import com.synectiks.json.datagenerator.functions.FunctionRegistry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link Iterator} over the records of a {@link CompiledTemplateImpl}: the elements of its
+ * outermost repeats, or the whole rendered template if it has no repeat.  An element is only
+ * rendered when it is asked for, so memory use is bounded by the size of one record.  The nodes
+ * outside the outermost repeats are evaluated in order but their output is dropped, so the records
+ * are the same elements a render of the template with the same options would write.
+ */
+final class RecordIterator implements Iterator<String> {
+
+    private static final int BUFFER_SIZE = 8192;
+    private final TemplateNode[] nodes;
+    private final boolean hasRepeat;
+    private final RenderContext context;
+    private final ByteArrayOutputStream recordBuffer;
+    private int nodeIndex;
+    private boolean finished;
+    private RepeatNode repeat;
+    private int times;
+    private int element;
+    private long firstRecord;
+    private String next;
+
+    /**
+     * constructor
+     * @param nodes the render plan
+     * @param hasRepeat if the plan has an outermost repeat
+     * @param context the render state; its output stream must write to the record buffer
+     * @param recordBuffer the buffer a record is rendered into
+     */
+    private RecordIterator(final TemplateNode[] nodes, final boolean hasRepeat,
+        final RenderContext context, final ByteArrayOutputStream recordBuffer) {
+        this.nodes = nodes;
+        this.hasRepeat = hasRepeat;
+        this.context = context;
+        this.recordBuffer = recordBuffer;
+    }
+
+    /**
+     * create an iterator for a plan
+     * @param nodes the render plan
+     * @param hasRepeat if the plan has an outermost repeat
+     * @param seed the seed of the render or null
+     * @param functionRegistry the registry functions are looked up in
+     * @return the iterator
+     */
+    static RecordIterator create(final TemplateNode[] nodes, final boolean hasRepeat,
+        final Long seed, final FunctionRegistry functionRegistry) {
+        ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(BUFFER_SIZE);
+        RenderContext context = new RenderContext(
+            new Utf8EncodingOutputStream(recordBuffer, BUFFER_SIZE), seed, functionRegistry);
+        return new RecordIterator(nodes, hasRepeat, context, recordBuffer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final String record = next;
+        next = null;
+        return record;
+    }
+
+    private String advance() throws IOException {
+        while (true) {
+            if (repeat != null && element < times) {
+                return renderElement();
+            }
+            if (repeat != null) {
+                if (context.hasSeed()) {
+                    context.endRecord();
+                }
+                context.addRecords(times);
+                repeat = null;
+            }
+            if (finished) {
+                return null;
+            }
+            if (nodeIndex == nodes.length) {
+                finished = true;
+                return hasRepeat || nodes.length == 0 ? null : takeRecord();
+            }
+            TemplateNode node = nodes[nodeIndex++];
+            if (node instanceof RepeatNode && ((RepeatNode) node).getOutermostIndex() >= 0) {
+                repeat = (RepeatNode) node;
+                times = repeat.nextTimes(context);
+                element = 0;
+                firstRecord = context.getRecords();
+            } else {
+                node.render(context);
+                if (hasRepeat) {
+                    discardOutput();
+                }
+            }
+        }
+    }
+
+    private String renderElement() throws IOException {
+        discardOutput();
+        if (context.hasSeed()) {
+            context.startRecord(repeat.getOutermostIndex(), element, firstRecord + element);
+        }
+        repeat.renderElement(context);
+        element++;
+        return takeRecord();
+    }
+
+    private void discardOutput() throws IOException {
+        context.getOutputStream().flush();
+        recordBuffer.reset();
+    }
+
+    private String takeRecord() throws IOException {
+        context.getOutputStream().flush();
+        final String record = recordBuffer.toString(Charsets.UTF_8.name()).trim();
+        recordBuffer.reset();
+        return record;
+    }
+}
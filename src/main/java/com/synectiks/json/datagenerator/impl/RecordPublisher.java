@@ -0,0 +1,209 @@
+package com.synectiks.json.datagenerator.impl;
+
+import com.google.common.base.Charsets;
+import com.synectiks.json.datagenerator.CompiledTemplate;
+import com.synectiks.json.datagenerator.RenderOptions;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.commons.lang.Validate.isTrue;
+import static org.apache.commons.lang.Validate.notNull;
+
+/**
+ * Reactive Streams {@link Publisher} of the records of a {@link CompiledTemplate}, each one encoded
+ * as UTF-8 in its own {@link ByteBuffer}.  Every subscriber gets its own render of the template.
+ * Records are rendered on the executor and never more than <code>window</code> ahead of what the
+ * subscriber has received, whatever it has requested; cancelling stops the render before the next
+ * element, even in the middle of a repeat.  On JDK 9 and later
+ * <code>org.reactivestreams.FlowAdapters</code> turns it into a
+ * <code>java.util.concurrent.Flow.Publisher</code>.
+ */
+public final class RecordPublisher implements Publisher<ByteBuffer> {
+
+    private final CompiledTemplate compiledTemplate;
+    private final RenderOptions renderOptions;
+    private final Executor executor;
+    private final int window;
+
+    /**
+     * publisher that renders on the common fork join pool
+     * @param compiledTemplate the template to render
+     * @param renderOptions the options that control rendering; the number of threads is ignored
+     * @param window the maximum number of records rendered before they are delivered
+     */
+    public RecordPublisher(final CompiledTemplate compiledTemplate,
+        final RenderOptions renderOptions, final int window) {
+        this(compiledTemplate, renderOptions, ForkJoinPool.commonPool(), window);
+    }
+
+    /**
+     * publisher that renders on the given executor
+     * @param compiledTemplate the template to render
+     * @param renderOptions the options that control rendering; the number of threads is ignored
+     * @param executor the executor records are rendered and delivered on
+     * @param window the maximum number of records rendered before they are delivered
+     */
+    public RecordPublisher(final CompiledTemplate compiledTemplate,
+        final RenderOptions renderOptions, final Executor executor, final int window) {
+        notNull(compiledTemplate, "compiledTemplate can not be null");
+        notNull(renderOptions, "renderOptions can not be null");
+        notNull(executor, "executor can not be null");
+        isTrue(window > 0, "window must be greater than 0");
+        this.compiledTemplate = compiledTemplate;
+        this.renderOptions = renderOptions;
+        this.executor = executor;
+        this.window = window;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void subscribe(final Subscriber<? super ByteBuffer> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber can not be null");
+        }
+        RecordSubscription subscription = new RecordSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * state of one subscriber.  All signals to the subscriber and all rendering happen in
+     * {@link #drain()}, which runs on the executor and never on two threads at once.
+     */
+    private final class RecordSubscription implements Subscription, Runnable {
+
+        private final Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private final ArrayDeque<ByteBuffer> renderedAhead = new ArrayDeque<>();
+        private volatile boolean cancelled;
+        private volatile IllegalArgumentException invalidRequest;
+        private Iterator<String> records;
+        private boolean done;
+
+        private RecordSubscription(final Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException(
+                    "request must be greater than 0 but was " + n);
+            } else {
+                long current;
+                do {
+                    current = demand.get();
+                } while (!demand.compareAndSet(current,
+                    current + n < 0 ? Long.MAX_VALUE : current + n));
+            }
+            scheduleDrain();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void cancel() {
+            cancelled = true;
+            scheduleDrain();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run() {
+            drain();
+        }
+
+        private void scheduleDrain() {
+            if (pendingDrains.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    pendingDrains.set(0);
+                    cancelled = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                try {
+                    drainOnce();
+                } catch (RuntimeException e) {
+                    finish();
+                    subscriber.onError(e);
+                }
+                missed = pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drainOnce() {
+            if (done) {
+                return;
+            }
+            if (cancelled) {
+                finish();
+                return;
+            }
+            if (invalidRequest != null) {
+                finish();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+            if (records == null) {
+                records = compiledTemplate.records(renderOptions).iterator();
+            }
+            while (demand.get() > 0 && !cancelled) {
+                ByteBuffer record = renderedAhead.poll();
+                if (record == null) {
+                    if (!records.hasNext()) {
+                        break;
+                    }
+                    record = encode(records.next());
+                }
+                demand.decrementAndGet();
+                subscriber.onNext(record);
+            }
+            if (cancelled) {
+                finish();
+                return;
+            }
+            while (renderedAhead.size() < window && records.hasNext() && !cancelled) {
+                renderedAhead.add(encode(records.next()));
+            }
+            if (renderedAhead.isEmpty() && !records.hasNext() && !cancelled) {
+                finish();
+                subscriber.onComplete();
+            }
+        }
+
+        private void finish() {
+            done = true;
+            cancelled = true;
+            renderedAhead.clear();
+            records = null;
+        }
+
+        private ByteBuffer encode(final String record) {
+            return ByteBuffer.wrap(record.getBytes(Charsets.UTF_8));
+        }
+    }
+}
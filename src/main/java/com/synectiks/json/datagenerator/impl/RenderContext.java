@@ -0,0 +1,105 @@
+package com.synectiks.json.datagenerator.impl;
+
+import com.synectiks.json.datagenerator.functions.FunctionContext;
+import com.synectiks.json.datagenerator.functions.FunctionRegistry;
+import com.synectiks.json.datagenerator.functions.RandomSource;
+
+import java.util.HashMap;
+
+/**
+ * mutable state of one render of a {@link CompiledTemplateImpl}
+ */
+final class RenderContext {
+
+    private final Utf8EncodingOutputStream outputStream;
+    private final FunctionContext functionContext;
+    private final Long seed;
+    private long records;
+
+    /**
+     * constructor
+     * @param outputStream the stream the template is rendered to
+     * @param seed the seed of the render or null to use the random source of the current thread
+     * @param functionRegistry the registry functions are looked up in
+     */
+    RenderContext(final Utf8EncodingOutputStream outputStream, final Long seed,
+        final FunctionRegistry functionRegistry) {
+        this.outputStream = outputStream;
+        this.seed = seed;
+        this.functionContext = new FunctionContext(seed != null ? new RandomSource(seed) : null,
+            functionRegistry);
+        if (seed != null) {
+            //a seeded render counts its indexes from their starting points so it can be repeated
+            functionContext.setIndexes(new HashMap<String, IndexHolder>());
+        }
+    }
+
+    /**
+     * if the render is seeded, in which case every element of an outermost repeat is rendered as
+     * an independent record with its own random source
+     * @return true if the render has a seed
+     */
+    boolean hasSeed() {
+        return seed != null;
+    }
+
+    /**
+     * get the seed of the render
+     * @return the seed or null
+     */
+    Long getSeed() {
+        return seed;
+    }
+
+    /**
+     * start rendering an element of an outermost repeat as an independent record.  When the
+     * render is seeded, the random source of the record only depends on the seed and the position
+     * of the element, so it does not matter which thread renders it or what was rendered before.
+     * @param repeatIndex the position of the repeat among the outermost repeats
+     * @param element the position of the element in the repeat
+     * @param recordIndex the position of the record in the output
+     */
+    void startRecord(final int repeatIndex, final int element, final long recordIndex) {
+        functionContext.startRecord(recordIndex,
+            seed != null ? RandomSource.derive(seed, repeatIndex, element) : null);
+    }
+
+    /**
+     * stop rendering independent records
+     */
+    void endRecord() {
+        functionContext.endRecord();
+    }
+
+    /**
+     * get the stream the template is rendered to
+     * @return the stream
+     */
+    Utf8EncodingOutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * get the function state for this render
+     * @return the function context
+     */
+    FunctionContext getFunctionContext() {
+        return functionContext;
+    }
+
+    /**
+     * record that elements of an outermost repeat were rendered
+     * @param count the number of elements
+     */
+    void addRecords(final long count) {
+        records += count;
+    }
+
+    /**
+     * get the number of elements of outermost repeats that were rendered
+     * @return the number of records
+     */
+    long getRecords() {
+        return records;
+    }
+}
@@ -0,0 +1,133 @@
+package com.synectiks.json.datagenerator.impl;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@link TemplateNode} for a <code>'{{repeat(min, max)}}',</code> block.  The body is rendered
+ * once per element, so nested repeats and functions are evaluated separately for every element.
+ */
+final class RepeatNode implements TemplateNode {
+
+    private final int minTimes;
+    private final int maxTimes;
+    private final TemplateNode[] body;
+    private final byte[] separator;
+    private final byte[] trailer;
+    private final int outermostIndex;
+
+    /**
+     * constructor
+     * @param minTimes minimum number of elements
+     * @param maxTimes maximum number of elements (exclusive unless equal to minTimes)
+     * @param body the plan for a single element
+     * @param separator bytes written between elements
+     * @param trailer bytes written after the last element
+     * @param outermostIndex the position of this repeat among the repeats that are not nested in
+     *                       another repeat, so its elements are records; -1 if it is nested
+     */
+    RepeatNode(final int minTimes, final int maxTimes, final List<TemplateNode> body,
+        final byte[] separator, final byte[] trailer, final int outermostIndex) {
+        this.minTimes = minTimes;
+        this.maxTimes = maxTimes;
+        this.body = body.toArray(new TemplateNode[body.size()]);
+        this.separator = separator;
+        this.trailer = trailer;
+        this.outermostIndex = outermostIndex;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void render(final RenderContext context) throws IOException {
+        final int times = nextTimes(context);
+        final boolean independentRecords = outermostIndex >= 0 && context.hasSeed();
+        final long firstRecord = context.getRecords();
+        for (int i = 0; i < times; i++) {
+            if (i > 0) {
+                context.getOutputStream().write(separator);
+            }
+            if (independentRecords) {
+                context.startRecord(outermostIndex, i, firstRecord + i);
+            }
+            renderElement(context);
+        }
+        if (independentRecords) {
+            context.endRecord();
+        }
+        context.getOutputStream().write(trailer);
+        if (outermostIndex >= 0) {
+            context.addRecords(times);
+        }
+    }
+
+    /**
+     * pick the number of elements to render
+     * @param context the render state
+     * @return the number of elements
+     */
+    int nextTimes(final RenderContext context) {
+        return minTimes == maxTimes ? minTimes
+            : context.getFunctionContext().getRandomSource().nextInt(minTimes, maxTimes);
+    }
+
+    /**
+     * render a single element without a separator
+     * @param context the render state
+     * @throws IOException if the output can not be written
+     */
+    void renderElement(final RenderContext context) throws IOException {
+        for (TemplateNode node : body) {
+            node.render(context);
+        }
+    }
+
+    /**
+     * get the plan for a single element
+     * @return the nodes of the body
+     */
+    TemplateNode[] getBody() {
+        return body;
+    }
+
+    /**
+     * get the minimum number of elements
+     * @return the minimum
+     */
+    int getMinTimes() {
+        return minTimes;
+    }
+
+    /**
+     * get the maximum number of elements
+     * @return the maximum
+     */
+    int getMaxTimes() {
+        return maxTimes;
+    }
+
+    /**
+     * get the position of this repeat among the repeats that are not nested in another repeat
+     * @return the position or -1 if this repeat is nested
+     */
+    int getOutermostIndex() {
+        return outermostIndex;
+    }
+
+    /**
+     * get the bytes written between elements
+     * @return the separator
+     */
+    byte[] getSeparator() {
+        return separator;
+    }
+
+    /**
+     * get the bytes written after the last element
+     * @return the trailer
+     */
+    byte[] getTrailer() {
+        return trailer;
+    }
+}
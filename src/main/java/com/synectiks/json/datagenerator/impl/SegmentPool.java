@@ -0,0 +1,100 @@
+package com.synectiks.json.datagenerator.impl;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.commons.lang.Validate.isTrue;
+import static org.apache.commons.lang.Validate.notNull;
+
+/**
+ * pool of fixed size byte arrays that render buffers borrow and return, so that rendering the
+ * same template again does not allocate new buffers.  Segments are not cleared when they are
+ * returned.  At most <code>maxRetainedSegments</code> free segments are kept; the rest are left to
+ * the garbage collector.  Safe to use from several threads.
+ */
+public final class SegmentPool {
+
+    /**
+     * the size of a segment if none is given
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 8192;
+    private static final int DEFAULT_MAX_RETAINED_SEGMENTS = 1024;
+
+    private final int segmentSize;
+    private final int maxRetainedSegments;
+    private final ConcurrentLinkedQueue<byte[]> freeSegments = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retainedSegments = new AtomicInteger();
+    private final AtomicLong allocatedSegments = new AtomicLong();
+
+    /**
+     * pool with the default segment size that keeps up to 8MB of free segments
+     */
+    public SegmentPool() {
+        this(DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_RETAINED_SEGMENTS);
+    }
+
+    /**
+     * constructor
+     * @param segmentSize the size of every segment in bytes
+     * @param maxRetainedSegments the maximum number of free segments kept for reuse
+     */
+    public SegmentPool(final int segmentSize, final int maxRetainedSegments) {
+        isTrue(segmentSize > 0, "segmentSize must be greater than 0");
+        isTrue(maxRetainedSegments >= 0, "maxRetainedSegments can not be negative");
+        this.segmentSize = segmentSize;
+        this.maxRetainedSegments = maxRetainedSegments;
+    }
+
+    /**
+     * take a free segment, or allocate one if there is none
+     * @return a segment of {@link #getSegmentSize()} bytes with undefined content
+     */
+    public byte[] borrow() {
+        byte[] segment = freeSegments.poll();
+        if (segment != null) {
+            retainedSegments.decrementAndGet();
+            return segment;
+        }
+        allocatedSegments.incrementAndGet();
+        return new byte[segmentSize];
+    }
+
+    /**
+     * give a segment back to the pool.  It must not be used by the caller afterwards.
+     * @param segment a segment borrowed from this pool
+     */
+    public void release(final byte[] segment) {
+        notNull(segment, "segment can not be null");
+        isTrue(segment.length == segmentSize, "segment was not borrowed from this pool");
+        if (retainedSegments.incrementAndGet() <= maxRetainedSegments) {
+            freeSegments.offer(segment);
+        } else {
+            retainedSegments.decrementAndGet();
+        }
+    }
+
+    /**
+     * get the size of the segments of this pool
+     * @return the size in bytes
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * get the number of segments this pool has allocated since it was created
+     * @return the number of segments
+     */
+    public long getAllocatedSegments() {
+        return allocatedSegments.get();
+    }
+
+    /**
+     * get the number of free segments kept for reuse
+     * @return the number of segments
+     */
+    public int getRetainedSegments() {
+        return retainedSegments.get();
+    }
+}
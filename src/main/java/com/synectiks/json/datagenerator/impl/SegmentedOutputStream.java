@@ -0,0 +1,256 @@
+package com.synectiks.json.datagenerator.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * in memory {@link OutputStream} made of segments borrowed from a {@link SegmentPool}.  Growing it
+ * borrows another segment instead of copying what was written, and reading it back shares the
+ * segments instead of copying them.  {@link #close()} returns the segments to the pool; views
+ * created before then must not be used afterwards.
+ */
+final class SegmentedOutputStream extends OutputStream {
+
+    private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
+    private final SegmentPool segmentPool;
+    private final int segmentSize;
+    private final List<byte[]> segments = new ArrayList<>();
+    private byte[] currentSegment;
+    private int segmentPosition;
+    private int count;
+
+    /**
+     * constructor
+     * @param segmentPool the pool segments are borrowed from
+     */
+    SegmentedOutputStream(final SegmentPool segmentPool) {
+        this.segmentPool = segmentPool;
+        this.segmentSize = segmentPool.getSegmentSize();
+        this.segmentPosition = segmentSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final int b) {
+        if (segmentPosition == segmentSize) {
+            nextSegment();
+        }
+        currentSegment[segmentPosition++] = (byte) b;
+        count++;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+        if ((off < 0) || (off > b.length) || (len < 0) || ((off + len) - b.length > 0)) {
+            throw new IndexOutOfBoundsException();
+        }
+        int written = 0;
+        while (written < len) {
+            if (segmentPosition == segmentSize) {
+                nextSegment();
+            }
+            int length = Math.min(len - written, segmentSize - segmentPosition);
+            System.arraycopy(b, off + written, currentSegment, segmentPosition, length);
+            segmentPosition += length;
+            written += length;
+        }
+        count += len;
+    }
+
+    /**
+     * get the number of bytes written
+     * @return the size in bytes
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * drop everything after a length and return the segments that are no longer needed
+     * @param length the new size in bytes; not more than the current size
+     */
+    void setLength(final int length) {
+        int neededSegments = (length + segmentSize - 1) / segmentSize;
+        while (segments.size() > neededSegments) {
+            segmentPool.release(segments.remove(segments.size() - 1));
+        }
+        count = length;
+        if (segments.isEmpty()) {
+            currentSegment = null;
+            segmentPosition = segmentSize;
+        } else {
+            currentSegment = segments.get(segments.size() - 1);
+            segmentPosition = length - (segments.size() - 1) * segmentSize;
+        }
+    }
+
+    /**
+     * write everything to another stream, one segment at a time
+     * @param out the stream to write to
+     * @throws IOException if the stream can not be written
+     */
+    void writeTo(final OutputStream out) throws IOException {
+        for (int i = 0; i < segments.size(); i++) {
+            out.write(segments.get(i), 0, segmentLength(i));
+        }
+    }
+
+    /**
+     * get views of the written bytes that share the segments, e.g. for a gathering write
+     * @return one buffer per segment
+     */
+    ByteBuffer[] toByteBuffers() {
+        ByteBuffer[] byteBuffers = new ByteBuffer[segments.size()];
+        for (int i = 0; i < byteBuffers.length; i++) {
+            byteBuffers[i] = ByteBuffer.wrap(segments.get(i), 0, segmentLength(i));
+        }
+        return byteBuffers;
+    }
+
+    /**
+     * get an {@link InputStream} over the bytes written so far that shares the segments
+     * @return a {@link ByteArrayInputStream}
+     */
+    ByteArrayInputStream newInputStream() {
+        if (segments.size() <= 1) {
+            return new ByteArrayInputStream(segments.isEmpty() ? EMPTY_BYTE_ARRAY : segments.get(0),
+                0, count);
+        }
+        return new SegmentInputStream(segments.toArray(new byte[segments.size()][]), segmentSize,
+            count);
+    }
+
+    /**
+     * return all segments to the pool
+     */
+    @Override
+    public void close() {
+        for (byte[] segment : segments) {
+            segmentPool.release(segment);
+        }
+        segments.clear();
+        currentSegment = null;
+        segmentPosition = segmentSize;
+        count = 0;
+    }
+
+    private void nextSegment() {
+        currentSegment = segmentPool.borrow();
+        segments.add(currentSegment);
+        segmentPosition = 0;
+    }
+
+    private int segmentLength(final int index) {
+        return index < segments.size() - 1 ? segmentSize : count - index * segmentSize;
+    }
+
+    /**
+     * {@link ByteArrayInputStream} that reads across segments instead of one array.  Every method
+     * that reads the array of {@link ByteArrayInputStream} is overridden, including the bulk
+     * reads that newer JDKs add to it; they have no <code>@Override</code> so that this also
+     * compiles for java 8.
+     */
+    private static final class SegmentInputStream extends ByteArrayInputStream {
+        private final byte[][] segments;
+        private final int segmentSize;
+
+        private SegmentInputStream(final byte[][] segments, final int segmentSize,
+            final int count) {
+            super(EMPTY_BYTE_ARRAY);
+            this.segments = segments;
+            this.segmentSize = segmentSize;
+            this.count = count;
+        }
+
+        @Override
+        public synchronized int read() {
+            if (pos >= count) {
+                return -1;
+            }
+            int b = segments[pos / segmentSize][pos % segmentSize] & 0xff;
+            pos++;
+            return b;
+        }
+
+        @Override
+        public synchronized int read(final byte[] b, final int off, final int len) {
+            if ((off < 0) || (off > b.length) || (len < 0) || ((off + len) - b.length > 0)) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (pos >= count) {
+                return -1;
+            }
+            int toRead = Math.min(len, count - pos);
+            int read = 0;
+            while (read < toRead) {
+                int position = pos % segmentSize;
+                int length = Math.min(toRead - read, segmentSize - position);
+                System.arraycopy(segments[pos / segmentSize], position, b, off + read, length);
+                pos += length;
+                read += length;
+            }
+            return read;
+        }
+
+        @Override
+        public synchronized long skip(final long n) {
+            long skipped = Math.max(0, Math.min(n, count - pos));
+            pos += (int) skipped;
+            return skipped;
+        }
+
+        @Override
+        public synchronized int available() {
+            return count - pos;
+        }
+
+        /**
+         * read all remaining bytes
+         * @return the bytes
+         */
+        public synchronized byte[] readAllBytes() {
+            byte[] bytes = new byte[count - pos];
+            read(bytes, 0, bytes.length);
+            return bytes;
+        }
+
+        /**
+         * read up to a number of bytes
+         * @param b the array to read into
+         * @param off the offset in the array
+         * @param len the maximum number of bytes
+         * @return the number of bytes read; 0 at the end of the stream
+         */
+        public synchronized int readNBytes(final byte[] b, final int off, final int len) {
+            int read = read(b, off, len);
+            return read == -1 ? 0 : read;
+        }
+
+        /**
+         * write all remaining bytes to a stream, one segment at a time
+         * @param out the stream to write to
+         * @return the number of bytes written
+         * @throws IOException if the stream can not be written
+         */
+        public synchronized long transferTo(final OutputStream out) throws IOException {
+            int transferred = count - pos;
+            while (pos < count) {
+                int position = pos % segmentSize;
+                int length = Math.min(count - pos, segmentSize - position);
+                out.write(segments[pos / segmentSize], position, length);
+                pos += length;
+            }
+            return transferred;
+        }
+    }
+}
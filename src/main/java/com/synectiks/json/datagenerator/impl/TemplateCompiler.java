@@ -0,0 +1,405 @@
+package com.synectiks.json.datagenerator.impl;
+
+import com.google.common.base.Charsets;
+import com.synectiks.json.datagenerator.functions.FunctionExpression;
+import com.synectiks.json.datagenerator.functions.FunctionRegistry;
+import com.synectiks.json.datagenerator.functions.LiteralExpression;
+import com.synectiks.json.datagenerator.parser.FunctionCallParser;
+import com.synectiks.json.datagenerator.parser.ParseException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses template text into the immutable plan used by {@link CompiledTemplateImpl}.  Each repeat
+ * body is compiled once and rendered once per element, so repeats are never copied out into the
+ * text they expand to.  Function tokens are found the same way {@link FunctionReplacingReader}
+ * finds them.  The text is read through a {@link TemplateText}, so a memory-mapped template file
+ * is compiled in place and its literal runs are replayed from the mapping.
+ */
+final class TemplateCompiler {
+
+    private static final Pattern REPEAT_PARAMETERS_PATTERN =
+        Pattern.compile("^(\\d+),*\\s*(\\d+)*$");
+    private static final String REPEAT_DIRECTIVE_END = "}}',";
+    private static final byte[] COMMA_NEWLINE_BYTE_ARRAY = ",\n".getBytes(Charsets.UTF_8);
+    private static final byte[] NEWLINE_BYTE_ARRAY = "\n".getBytes(Charsets.UTF_8);
+    private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
+
+    private final TemplateText text;
+    private final FunctionRegistry functionRegistry;
+    private int[] openBracePositions;
+    private int[] matchingBraces;
+    private Map<String, List<Integer>> closingTagPositions;
+
+    private TemplateCompiler(final TemplateText text, final FunctionRegistry functionRegistry) {
+        this.text = text;
+        this.functionRegistry = functionRegistry;
+    }
+
+    /**
+     * compile template text
+     * @param text the template text
+     * @param functionRegistry the registry the functions of the template are looked up in
+     * @param segmentPool the pool render buffers are borrowed from
+     * @return the compiled template
+     * @throws IllegalArgumentException if a repeat has invalid arguments
+     */
+    static CompiledTemplateImpl compile(final String text,
+        final FunctionRegistry functionRegistry, final SegmentPool segmentPool) {
+        return compile(TemplateText.of(text), functionRegistry, segmentPool);
+    }
+
+    /**
+     * compile template text that may be memory-mapped
+     * @param text the template text
+     * @param functionRegistry the registry the functions of the template are looked up in
+     * @param segmentPool the pool render buffers are borrowed from
+     * @return the compiled template
+     * @throws IllegalArgumentException if a repeat has invalid arguments
+     */
+    static CompiledTemplateImpl compile(final TemplateText text,
+        final FunctionRegistry functionRegistry, final SegmentPool segmentPool) {
+        return new CompiledTemplateImpl(
+            new TemplateCompiler(text, functionRegistry).compileNodes(0, text.length(), true),
+            functionRegistry, segmentPool);
+    }
+
+    /**
+     * compile the part of the text between start and end.  Nested repeat bodies are compiled in
+     * place rather than copied out, so the work done is linear in the size of the text no matter
+     * how deeply repeats are nested.
+     */
+    private List<TemplateNode> compileNodes(final int start, final int end,
+        final boolean outermost) {
+        final List<TemplateNode> nodes = new ArrayList<>();
+        int literalStart = start;
+        int position = start;
+        int outermostRepeats = 0;
+        int directiveStart;
+        while ((directiveStart = text.indexOf(JsonDataGeneratorImpl.REPEAT, position)) != -1
+            && directiveStart + JsonDataGeneratorImpl.REPEAT.length() <= end) {
+            position = directiveStart + JsonDataGeneratorImpl.REPEAT.length();
+            int argumentsEnd = text.indexOf(')', position);
+            if (argumentsEnd == -1 || argumentsEnd + 1 + REPEAT_DIRECTIVE_END.length() > end
+                || !text.startsWith(REPEAT_DIRECTIVE_END, argumentsEnd + 1)) {
+                continue;
+            }
+            String repeatArguments = text.substring(position, argumentsEnd);
+            int[] range = parseRepeats(repeatArguments);
+            int bodyStart = argumentsEnd + 1 + REPEAT_DIRECTIVE_END.length();
+            RepeatBlock block = findRepeatBlock(bodyStart, end);
+            if (block == null) {
+                continue;
+            }
+            addText(nodes, literalStart, directiveStart);
+            nodes.add(new RepeatNode(range[0], range[1],
+                compileNodes(bodyStart, block.bodyEnd, false),
+                block.separator, block.trailer, outermost ? outermostRepeats++ : -1));
+            literalStart = block.blockEnd;
+            position = block.blockEnd;
+        }
+        addText(nodes, literalStart, end);
+        return nodes;
+    }
+
+    private static int[] parseRepeats(final String repeatArguments) {
+        final Matcher matcher = REPEAT_PARAMETERS_PATTERN.matcher(repeatArguments);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException(
+                "invalid arguments for repeat function: " + repeatArguments);
+        }
+        int min = Integer.parseInt(matcher.group(1));
+        int max = matcher.group(2) != null ? Integer.parseInt(matcher.group(2)) : min;
+        if (max < min) {
+            throw new IllegalArgumentException(
+                "the second number must be greater than the first number: " + repeatArguments);
+        }
+        return new int[] {min, max};
+    }
+
+    /**
+     * find the end of the element that follows a repeat directive.  Json elements end when their
+     * braces balance or when the enclosing array closes; xml elements end at their closing tag.
+     */
+    private RepeatBlock findRepeatBlock(final int bodyStart, final int end) {
+        int i = bodyStart;
+        while (i < end && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        if (i == end) {
+            return null;
+        }
+        final char firstNonWhitespaceCharacter = text.charAt(i);
+        if ('<' == firstNonWhitespaceCharacter) {
+            String xmlRepeatTag = "</" + readXmlTagName(text, i + 1) + ">";
+            int tagStart = findClosingTag(xmlRepeatTag, i);
+            if (tagStart == -1 || tagStart + xmlRepeatTag.length() > end) {
+                return null;
+            }
+            int blockEnd = tagStart + xmlRepeatTag.length();
+            return new RepeatBlock(blockEnd, blockEnd, NEWLINE_BYTE_ARRAY, EMPTY_BYTE_ARRAY);
+        }
+        while (i < end) {
+            char c = text.charAt(i);
+            if ('{' == c) {
+                int close = findMatchingBrace(i);
+                if (close == -1 || close >= end) {
+                    return null;
+                }
+                int blockEnd = close + 1;
+                if (blockEnd < end && text.charAt(blockEnd) == firstNonWhitespaceCharacter) {
+                    blockEnd++;
+                }
+                return new RepeatBlock(blockEnd, blockEnd, COMMA_NEWLINE_BYTE_ARRAY,
+                    EMPTY_BYTE_ARRAY);
+            } else if ('}' == c || ']' == c) {
+                return new RepeatBlock(i, i + 1, COMMA_NEWLINE_BYTE_ARRAY,
+                    String.valueOf(c).getBytes(Charsets.UTF_8));
+            }
+            i++;
+        }
+        return null;
+    }
+
+    /**
+     * find the <code>}</code> that balances the <code>{</code> at a position.  The pairs are
+     * collected in one pass the first time a json repeat is compiled and kept per brace rather
+     * than per char, so a large template of static text does not need a table of its size.
+     * @return the position of the <code>}</code> or -1 if there is none
+     */
+    private int findMatchingBrace(final int openBrace) {
+        if (openBracePositions == null) {
+            int[] positions = new int[16];
+            int[] matches = new int[16];
+            int braces = 0;
+            int[] openBraces = new int[16];
+            int depth = 0;
+            for (int i = text.indexOfEither('{', '}', 0); i != -1;
+                i = text.indexOfEither('{', '}', i + 1)) {
+                char c = text.charAt(i);
+                if ('{' == c) {
+                    if (braces == positions.length) {
+                        positions = Arrays.copyOf(positions, braces * 2);
+                        matches = Arrays.copyOf(matches, braces * 2);
+                    }
+                    if (depth == openBraces.length) {
+                        openBraces = Arrays.copyOf(openBraces, depth * 2);
+                    }
+                    positions[braces] = i;
+                    matches[braces] = -1;
+                    openBraces[depth++] = braces++;
+                } else if ('}' == c && depth > 0) {
+                    matches[openBraces[--depth]] = i;
+                }
+            }
+            openBracePositions = Arrays.copyOf(positions, braces);
+            matchingBraces = Arrays.copyOf(matches, braces);
+        }
+        int index = Arrays.binarySearch(openBracePositions, openBrace);
+        return index < 0 ? -1 : matchingBraces[index];
+    }
+
+    /**
+     * find the first closing tag at or after a position.  The positions of all closing tags are
+     * collected in one pass the first time an xml repeat is compiled.
+     * @return the position of the tag or -1
+     */
+    private int findClosingTag(final String closingTag, final int from) {
+        if (closingTagPositions == null) {
+            closingTagPositions = new HashMap<>();
+            int tagStart = text.indexOf("</", 0);
+            while (tagStart != -1) {
+                int tagEnd = text.indexOf('>', tagStart + 2);
+                if (tagEnd == -1) {
+                    break;
+                }
+                String tag = text.substring(tagStart, tagEnd + 1);
+                List<Integer> positions = closingTagPositions.get(tag);
+                if (positions == null) {
+                    positions = new ArrayList<>();
+                    closingTagPositions.put(tag, positions);
+                }
+                positions.add(tagStart);
+                tagStart = text.indexOf("</", tagStart + 2);
+            }
+        }
+        List<Integer> positions = closingTagPositions.get(closingTag);
+        if (positions == null) {
+            return -1;
+        }
+        int index = Collections.binarySearch(positions, from);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < positions.size() ? positions.get(index) : -1;
+    }
+
+    private static String readXmlTagName(final TemplateText text, final int nameStart) {
+        int i = nameStart;
+        while (i < text.length() && !Character.isWhitespace(text.charAt(i))
+            && text.charAt(i) != '>' && text.charAt(i) != '/') {
+            i++;
+        }
+        return text.substring(nameStart, i);
+    }
+
+    /**
+     * split the text between start and end into literals and function tokens following the rules
+     * of {@link FunctionReplacingReader}
+     */
+    private void addText(final List<TemplateNode> nodes, final int start, final int end) {
+        final LiteralRun literal = new LiteralRun(nodes);
+        int i = start;
+        while (i < end) {
+            //everything up to the next '{' is literal
+            int brace = text.indexOf('{', i, end);
+            if (brace != i) {
+                int literalEnd = brace == -1 ? end : brace;
+                literal.appendText(i, literalEnd);
+                i = literalEnd;
+                continue;
+            }
+            if (i + 1 == end || text.charAt(i + 1) != '{') {
+                literal.appendText(i, i + 1);
+                i++;
+                continue;
+            }
+            final StringBuilder tokenNameBuffer = new StringBuilder();
+            int j = i + 2;
+            while (j < end && text.charAt(j) != '}') {
+                if (text.charAt(j) == '\\') {
+                    j++;
+                    if (j == end
+                        || (text.charAt(j) != '}' && text.charAt(j) != '{')) {
+                        tokenNameBuffer.append('\\');
+                    }
+                    if (j == end) {
+                        break;
+                    }
+                }
+                tokenNameBuffer.append(text.charAt(j++));
+            }
+            if (j < end) {
+                j++;
+                if (j < end) {
+                    if (text.charAt(j) != '}') {
+                        //not a valid function no second '}'
+                        literal.appendText(i, i + 1);
+                        i++;
+                        continue;
+                    }
+                    j++;
+                }
+            }
+            i = j;
+
+            String tokenText = text.decode(tokenNameBuffer.toString());
+            FunctionExpression expression = parseFunction(tokenText, functionRegistry);
+            if (expression == null) {
+                literal.appendCopy("{{" + tokenText + "}}");
+                continue;
+            }
+            if (expression instanceof LiteralExpression) {
+                literal.appendCopy(((LiteralExpression) expression).getValue());
+                continue;
+            }
+            literal.flush();
+            nodes.add(new FunctionNode(expression, tokenText));
+        }
+        literal.flush();
+    }
+
+    /**
+     * parse a function token and fold the calls to pure functions with literal arguments
+     * @return the expression or null if the token is not a function call
+     */
+    private static FunctionExpression parseFunction(final String tokenText,
+        final FunctionRegistry functionRegistry) {
+        try {
+            return FunctionCallParser.parse(tokenText).fold(functionRegistry);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * literal output collected between function tokens.  Text of a string template is copied into
+     * one {@link LiteralNode}; ranges of a mapped template become nodes over the mapping and only
+     * text that is not in the template, like folded function calls, is copied.
+     */
+    private final class LiteralRun {
+        private final List<TemplateNode> nodes;
+        private final StringBuilder copied = new StringBuilder();
+        private int rangeStart = -1;
+        private int rangeEnd;
+
+        private LiteralRun(final List<TemplateNode> nodes) {
+            this.nodes = nodes;
+        }
+
+        private void appendText(final int start, final int end) {
+            if (rangeStart != -1 && rangeEnd == start) {
+                rangeEnd = end;
+                return;
+            }
+            flushRange();
+            rangeStart = start;
+            rangeEnd = end;
+        }
+
+        private void appendCopy(final String value) {
+            flushRange();
+            copied.append(value);
+        }
+
+        private void flush() {
+            flushRange();
+            flushCopied();
+        }
+
+        private void flushRange() {
+            if (rangeStart == -1) {
+                return;
+            }
+            if (text.isMapped()) {
+                flushCopied();
+                nodes.add(text.literal(rangeStart, rangeEnd));
+            } else {
+                copied.append(text.substring(rangeStart, rangeEnd));
+            }
+            rangeStart = -1;
+        }
+
+        private void flushCopied() {
+            if (copied.length() > 0) {
+                nodes.add(new LiteralNode(copied.toString()));
+                copied.setLength(0);
+            }
+        }
+    }
+
+    /**
+     * location of an element that follows a repeat directive
+     */
+    private static final class RepeatBlock {
+        private final int bodyEnd;
+        private final int blockEnd;
+        private final byte[] separator;
+        private final byte[] trailer;
+
+        private RepeatBlock(final int bodyEnd, final int blockEnd, final byte[] separator,
+            final byte[] trailer) {
+            this.bodyEnd = bodyEnd;
+            this.blockEnd = blockEnd;
+            this.separator = separator;
+            this.trailer = trailer;
+        }
+    }
+}
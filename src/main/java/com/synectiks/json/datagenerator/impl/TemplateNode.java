@@ -0,0 +1,16 @@
+package com.synectiks.json.datagenerator.impl;
+
+import java.io.IOException;
+
+/**
+ * one immutable step of the render plan built by {@link TemplateCompiler}
+ */
+interface TemplateNode {
+
+    /**
+     * write the output of this step
+     * @param context the state of the current render
+     * @throws IOException if the stream cannot be written to
+     */
+    void render(RenderContext context) throws IOException;
+}
@@ -0,0 +1,329 @@
+package com.synectiks.json.datagenerator.impl;
+
+import com.google.common.base.Charsets;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * the text a {@link TemplateCompiler} scans.  Template text held in a {@link String} is scanned
+ * as it is.  A template file is memory-mapped and scanned byte by byte instead, one char per
+ * byte: everything the compiler looks for is ascii and the bytes of a multi-byte UTF-8 sequence
+ * are never ascii, so the positions it finds are the same.  Literal runs of a mapped template
+ * become {@link MappedLiteralNode}s over ranges of the mapping, so the template is never copied
+ * onto the heap; only function tokens are decoded.  The compiler skips from one <code>{</code>
+ * to the next with {@link #indexOf(char, int, int)} instead of looking at every char, and a
+ * mapped template searches eight bytes at a time.
+ */
+abstract class TemplateText {
+
+    /**
+     * text held in a string
+     * @param text the template text
+     * @return the text
+     */
+    static TemplateText of(final String text) {
+        return new StringText(text);
+    }
+
+    /**
+     * memory-map a template file.  The mapping is released when the compiled template that uses
+     * it is garbage collected.
+     * @param file the UTF-8 encoded template file
+     * @return the text
+     * @throws java.io.FileNotFoundException if the file does not exist
+     * @throws IOException if the file can not be mapped
+     */
+    static TemplateText map(final File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("template file is too large: " + size + " bytes");
+            }
+            return new MappedText(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * get the number of chars
+     * @return the length
+     */
+    abstract int length();
+
+    /**
+     * get the char at a position
+     * @param index the position
+     * @return the char
+     */
+    abstract char charAt(int index);
+
+    /**
+     * if literal runs are kept as ranges of this text rather than copied
+     * @return true for a mapped template
+     */
+    abstract boolean isMapped();
+
+    /**
+     * turn chars taken from this text into the text they stand for
+     * @param chars the chars
+     * @return the decoded text
+     */
+    abstract String decode(String chars);
+
+    /**
+     * create a node that writes a range of this text without copying it; only used when
+     * {@link #isMapped()}
+     * @param start the start of the range
+     * @param end the end of the range, exclusive
+     * @return the node
+     */
+    abstract TemplateNode literal(int start, int end);
+
+    /**
+     * get the chars between two positions
+     * @param start the start position
+     * @param end the end position, exclusive
+     * @return the chars
+     */
+    String substring(final int start, final int end) {
+        StringBuilder builder = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            builder.append(charAt(i));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * find a char at or after a position
+     * @param c the char to find
+     * @param from the position to start at
+     * @return the position or -1
+     */
+    int indexOf(final char c, final int from) {
+        return indexOf(c, from, length());
+    }
+
+    /**
+     * find a char between two positions
+     * @param c the char to find
+     * @param from the position to start at
+     * @param to the position to stop at, exclusive
+     * @return the position or -1
+     */
+    int indexOf(final char c, final int from, final int to) {
+        for (int i = Math.max(from, 0); i < to; i++) {
+            if (charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * find the first of two chars at or after a position
+     * @param first a char to find
+     * @param second another char to find
+     * @param from the position to start at
+     * @return the position or -1
+     */
+    int indexOfEither(final char first, final char second, final int from) {
+        for (int i = Math.max(from, 0); i < length(); i++) {
+            char c = charAt(i);
+            if (c == first || c == second) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * find a string at or after a position
+     * @param string the string to find
+     * @param from the position to start at
+     * @return the position or -1
+     */
+    int indexOf(final String string, final int from) {
+        int last = length() - string.length();
+        int i = Math.max(from, 0);
+        while (i <= last && (i = indexOf(string.charAt(0), i)) != -1 && i <= last) {
+            if (startsWith(string, i)) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * if a string appears at a position
+     * @param string the string
+     * @param at the position
+     * @return true if it does
+     */
+    boolean startsWith(final String string, final int at) {
+        if (at < 0 || at + string.length() > length()) {
+            return false;
+        }
+        for (int i = 0; i < string.length(); i++) {
+            if (charAt(at + i) != string.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * template text held in a {@link String}
+     */
+    private static final class StringText extends TemplateText {
+        private final String text;
+
+        private StringText(final String text) {
+            this.text = text;
+        }
+
+        @Override
+        int length() {
+            return text.length();
+        }
+
+        @Override
+        char charAt(final int index) {
+            return text.charAt(index);
+        }
+
+        @Override
+        boolean isMapped() {
+            return false;
+        }
+
+        @Override
+        String decode(final String chars) {
+            return chars;
+        }
+
+        @Override
+        TemplateNode literal(final int start, final int end) {
+            return new LiteralNode(text.substring(start, end));
+        }
+
+        @Override
+        String substring(final int start, final int end) {
+            return text.substring(start, end);
+        }
+
+        @Override
+        int indexOf(final char c, final int from, final int to) {
+            int index = text.indexOf(c, from);
+            return index < to ? index : -1;
+        }
+
+        @Override
+        int indexOf(final String string, final int from) {
+            return text.indexOf(string, from);
+        }
+
+        @Override
+        boolean startsWith(final String string, final int at) {
+            return text.startsWith(string, at);
+        }
+    }
+
+    /**
+     * UTF-8 template bytes in a memory mapping, read one char per byte
+     */
+    private static final class MappedText extends TemplateText {
+        private static final long ONES = 0x0101010101010101L;
+        private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+        private final ByteBuffer bytes;
+
+        private MappedText(final ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        char charAt(final int index) {
+            return (char) (bytes.get(index) & 0xff);
+        }
+
+        @Override
+        boolean isMapped() {
+            return true;
+        }
+
+        @Override
+        String decode(final String chars) {
+            return new String(chars.getBytes(Charsets.ISO_8859_1), Charsets.UTF_8);
+        }
+
+        @Override
+        TemplateNode literal(final int start, final int end) {
+            ByteBuffer range = bytes.duplicate();
+            range.position(start);
+            range.limit(end);
+            return new MappedLiteralNode(range.slice());
+        }
+
+        @Override
+        int indexOf(final char c, final int from, final int to) {
+            if (c > 0x7F) {
+                return super.indexOf(c, from, to);
+            }
+            long pattern = ONES * c;
+            int i = Math.max(from, 0);
+            for (; i + Long.BYTES <= to; i += Long.BYTES) {
+                long matches = matchingBytes(bytes.getLong(i), pattern);
+                if (matches != 0) {
+                    return i + firstByte(matches);
+                }
+            }
+            return super.indexOf(c, i, to);
+        }
+
+        @Override
+        int indexOfEither(final char first, final char second, final int from) {
+            if (first > 0x7F || second > 0x7F) {
+                return super.indexOfEither(first, second, from);
+            }
+            long firstPattern = ONES * first;
+            long secondPattern = ONES * second;
+            int i = Math.max(from, 0);
+            for (; i + Long.BYTES <= length(); i += Long.BYTES) {
+                long word = bytes.getLong(i);
+                long matches = matchingBytes(word, firstPattern) | matchingBytes(word, secondPattern);
+                if (matches != 0) {
+                    return i + firstByte(matches);
+                }
+            }
+            return super.indexOfEither(first, second, i);
+        }
+
+        /**
+         * set the high bit of every byte of a word that equals the byte of the pattern and clear
+         * every other bit.  Unlike the shorter <code>(x - ONES) &amp; ~x</code> test no borrow
+         * crosses bytes, so there are no false matches next to a real one.
+         */
+        private static long matchingBytes(final long word, final long pattern) {
+            long difference = word ^ pattern;
+            return ~(((difference & LOW_SEVEN_BITS) + LOW_SEVEN_BITS) | difference
+                | LOW_SEVEN_BITS);
+        }
+
+        /**
+         * the index of the first flagged byte; the buffer is big endian so that is the most
+         * significant one
+         */
+        private static int firstByte(final long matches) {
+            return Long.numberOfLeadingZeros(matches) >>> 3;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.synectiks.json.datagenerator.impl;
+
+import com.synectiks.json.datagenerator.RateProfile;
+import com.synectiks.json.datagenerator.RateReport;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.apache.commons.lang.Validate.isTrue;
+import static org.apache.commons.lang.Validate.notNull;
+
+/**
+ * token bucket that paces a producer to the rate of a {@link RateProfile}.  Tokens are added at
+ * the rate the profile asks for at each moment and the bucket holds at most <code>burst</code> of
+ * them, so a producer that was held up can catch up by that many records and no more.
+ * {@link #acquire()} parks the thread until shortly before the next token is due and spins for the
+ * rest of the wait, which keeps the jitter well below what parking alone gives at the cost of up
+ * to {@value #SPIN_NANOS} nanoseconds of busy waiting per record.  While the profile asks for no
+ * records the thread is parked, and the next token is only looked for a second ahead at a time,
+ * so a profile that stays at 0 blocks {@link #acquire()} until the thread is interrupted and
+ * makes {@link #tryAcquire(long, TimeUnit)} time out.  The clock starts at the first call to
+ * either of them.  Not thread safe.
+ */
+public final class TokenBucketPacer {
+
+    static final long SPIN_NANOS = 100_000;
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double MAX_INTEGRATION_STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final double LOOKAHEAD_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final RateProfile rateProfile;
+    private final int burst;
+    private boolean started;
+    private long startNanos;
+    private double nextTokenNanos;
+    private boolean nextTokenKnown = true;
+    private double neededTokens;
+    private long records;
+    private long totalLatenessNanos;
+    private long maxLatenessNanos;
+    private double integratedNanos;
+    private double targetRecords;
+
+    /**
+     * pacer that does not let a producer catch up by more than one record
+     * @param rateProfile the rate to pace to
+     */
+    public TokenBucketPacer(final RateProfile rateProfile) {
+        this(rateProfile, 1);
+    }
+
+    /**
+     * constructor
+     * @param rateProfile the rate to pace to
+     * @param burst the number of tokens the bucket holds
+     */
+    public TokenBucketPacer(final RateProfile rateProfile, final int burst) {
+        notNull(rateProfile, "rateProfile can not be null");
+        isTrue(burst > 0, "burst must be greater than 0");
+        this.rateProfile = rateProfile;
+        this.burst = burst;
+    }
+
+    /**
+     * wait for the next token
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        acquireBefore(Long.MAX_VALUE);
+    }
+
+    /**
+     * wait for the next token, but not longer than a timeout
+     * @param timeout the longest time to wait
+     * @param timeUnit the unit of the timeout
+     * @return true if the token was acquired, false if the timeout passed first
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean tryAcquire(final long timeout, final TimeUnit timeUnit)
+        throws InterruptedException {
+        long timeoutNanos = timeUnit.toNanos(timeout);
+        return acquireBefore(timeoutNanos >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE
+            : System.nanoTime() + timeoutNanos);
+    }
+
+    private boolean acquireBefore(final long deadlineNanos) throws InterruptedException {
+        long now = System.nanoTime();
+        if (!started) {
+            started = true;
+            startNanos = now;
+        }
+        while (!nextTokenKnown && !findNextToken(now - startNanos + LOOKAHEAD_NANOS)) {
+            //no token within the look ahead: sleep through the part already searched
+            if (!waitUntil(startNanos + (long) Math.ceil(nextTokenNanos), deadlineNanos)) {
+                return false;
+            }
+            now = System.nanoTime();
+        }
+        double elapsed = now - startNanos;
+        double rate = rateProfile.getRate((long) elapsed);
+        double fullBucketNanos = rate > 0 ? (burst - 1) * NANOS_PER_SECOND / rate : 0;
+        if (nextTokenNanos < elapsed - fullBucketNanos) {
+            nextTokenNanos = elapsed - fullBucketNanos;
+        }
+        long tokenDeadline = startNanos + (long) Math.ceil(nextTokenNanos);
+        if (!waitUntil(tokenDeadline, deadlineNanos)) {
+            return false;
+        }
+        long lateness = Math.max(0, System.nanoTime() - tokenDeadline);
+        totalLatenessNanos += lateness;
+        maxLatenessNanos = Math.max(maxLatenessNanos, lateness);
+        records++;
+        nextTokenKnown = false;
+        neededTokens = 1;
+        return true;
+    }
+
+    /**
+     * park, then spin, until a time unless the deadline comes first
+     * @return false if the deadline came first
+     */
+    private static boolean waitUntil(final long time, final long deadlineNanos)
+        throws InterruptedException {
+        long remaining;
+        while ((remaining = time - System.nanoTime()) > 0) {
+            long untilDeadline = deadlineNanos - System.nanoTime();
+            if (deadlineNanos != Long.MAX_VALUE && untilDeadline < remaining) {
+                if (untilDeadline > 0) {
+                    LockSupport.parkNanos(untilDeadline);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (deadlineNanos - System.nanoTime() <= 0) {
+                    return false;
+                }
+                continue;
+            }
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.yield();
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * get how closely the producer has followed the profile so far
+     * @return the report
+     */
+    public RateReport getReport() {
+        long elapsed = started ? System.nanoTime() - startNanos : 0;
+        while (integratedNanos < elapsed) {
+            double step = Math.min(MAX_INTEGRATION_STEP_NANOS, elapsed - integratedNanos);
+            targetRecords += rateAt(integratedNanos + step / 2) * step / NANOS_PER_SECOND;
+            integratedNanos += step;
+        }
+        return new RateReport(records, targetRecords, elapsed, rateAt(elapsed),
+            records > 0 ? totalLatenessNanos / records : 0, maxLatenessNanos);
+    }
+
+    /**
+     * move <code>nextTokenNanos</code> forward until the profile has produced the tokens that are
+     * still needed, or until a horizon.  Steps are short enough to follow changes of rate, and a
+     * rate of 0 just moves time forward until the rate picks up or the horizon is reached.
+     * @param horizonNanos the time to stop looking at, relative to the start of the run
+     * @return true if the time of the next token was found
+     */
+    private boolean findNextToken(final double horizonNanos) {
+        while (nextTokenNanos < horizonNanos) {
+            double rate = rateAt(nextTokenNanos);
+            double nanosForNeeded = rate > 0 ? neededTokens * NANOS_PER_SECOND / rate
+                : Double.MAX_VALUE;
+            if (nanosForNeeded <= MAX_INTEGRATION_STEP_NANOS) {
+                nextTokenNanos += nanosForNeeded;
+                nextTokenKnown = true;
+                return true;
+            }
+            neededTokens -= rateAt(nextTokenNanos + MAX_INTEGRATION_STEP_NANOS / 2)
+                * MAX_INTEGRATION_STEP_NANOS / NANOS_PER_SECOND;
+            nextTokenNanos += MAX_INTEGRATION_STEP_NANOS;
+            if (neededTokens <= 0) {
+                nextTokenKnown = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double rateAt(final double elapsedNanos) {
+        return rateProfile.getRate((long) elapsedNanos);
+    }
+}
@@ -0,0 +1,171 @@
+package com.synectiks.json.datagenerator.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Buffered {@link OutputStream} that can also encode text as UTF-8 straight into its buffer, so
+ * writing a {@link CharSequence} does not allocate.  Surrogate pairs are encoded as one four byte
+ * sequence; unpaired surrogates are written as '?' just like {@link String#getBytes}.  Closing this
+ * stream only flushes it; the wrapped stream is left open.
+ */
+public final class Utf8EncodingOutputStream extends OutputStream {
+
+    private static final int DEFAULT_BUFFER_SIZE = 65536;
+    private static final int MAX_BYTES_PER_CHAR = 4;
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int count;
+
+    /**
+     * Creates a new stream with the default buffer size
+     * @param out the underlying output stream.
+     */
+    public Utf8EncodingOutputStream(final OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new stream with the specified buffer size
+     * @param out the underlying output stream.
+     * @param size the buffer size.
+     * @exception IllegalArgumentException if size &lt; 4.
+     */
+    public Utf8EncodingOutputStream(final OutputStream out, final int size) {
+        if (size < MAX_BYTES_PER_CHAR) {
+            throw new IllegalArgumentException("Buffer size < " + MAX_BYTES_PER_CHAR);
+        }
+        this.out = out;
+        this.buffer = new byte[size];
+    }
+
+    /**
+     * Creates a new stream that buffers in the given array, e.g. a segment borrowed from a
+     * {@link SegmentPool}.  The array must not be used elsewhere until this stream is closed.
+     * @param out the underlying output stream.
+     * @param buffer the buffer.
+     * @exception IllegalArgumentException if the buffer is shorter than 4 bytes.
+     */
+    Utf8EncodingOutputStream(final OutputStream out, final byte[] buffer) {
+        if (buffer.length < MAX_BYTES_PER_CHAR) {
+            throw new IllegalArgumentException("Buffer size < " + MAX_BYTES_PER_CHAR);
+        }
+        this.out = out;
+        this.buffer = buffer;
+    }
+
+    /**
+     * encode text as UTF-8 and write it
+     * @param text the text to write
+     * @throws IOException if the underlying stream fails
+     */
+    public void write(final CharSequence text) throws IOException {
+        final int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (buffer.length - count < MAX_BYTES_PER_CHAR) {
+                flushBuffer();
+            }
+            //ascii fast path, bounded so that the buffer can not overflow
+            int asciiEnd = Math.min(length, i + buffer.length - count);
+            char c;
+            while (i < asciiEnd && (c = text.charAt(i)) < 0x80) {
+                buffer[count++] = (byte) c;
+                i++;
+            }
+            if (i == length || buffer.length - count < MAX_BYTES_PER_CHAR) {
+                continue;
+            }
+            c = text.charAt(i++);
+            if (c < 0x80) {
+                buffer[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xC0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i < length
+                && Character.isLowSurrogate(text.charAt(i))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(i++));
+                buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer[count++] = '?';
+            } else {
+                buffer[count++] = (byte) (0xE0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final int b) throws IOException {
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (len >= buffer.length) {
+            flushBuffer();
+            out.write(b, off, len);
+            return;
+        }
+        if (len > buffer.length - count) {
+            flushBuffer();
+        }
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    /**
+     * write the remaining bytes of a buffer, e.g. a range of a memory-mapped file, through the
+     * buffer of this stream without an intermediate array
+     * @param byteBuffer the bytes to write; its position is moved to its limit
+     * @throws IOException if the underlying stream fails
+     */
+    public void write(final ByteBuffer byteBuffer) throws IOException {
+        while (byteBuffer.hasRemaining()) {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            int length = Math.min(byteBuffer.remaining(), buffer.length - count);
+            byteBuffer.get(buffer, count, length);
+            count += length;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+}
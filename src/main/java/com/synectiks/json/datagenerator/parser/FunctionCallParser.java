@@ -0,0 +1,293 @@
+package com.synectiks.json.datagenerator.parser;
+
+import com.synectiks.json.datagenerator.functions.FunctionCallExpression;
+import com.synectiks.json.datagenerator.functions.FunctionExpression;
+import com.synectiks.json.datagenerator.functions.LiteralExpression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.apache.commons.lang.Validate.isTrue;
+import static org.apache.commons.lang.Validate.notNull;
+
+/**
+ * hand written parser for the <code>Compile()</code> production of <code>FunctionParser.jjt</code>,
+ * which remains the specification of the syntax.  It reads the text in place instead of going
+ * through the JavaCC character stream and token manager, and unquotes string literals without
+ * regular expressions.  Like the generated parser it stops after the closing parenthesis of the
+ * outermost call and leaves escape sequences in string literals as they are.
+ */
+public final class FunctionCallParser {
+
+    private final CharSequence text;
+    private final int end;
+    private int position;
+
+    private FunctionCallParser(final CharSequence text, final int start, final int end) {
+        this.text = text;
+        this.position = start;
+        this.end = end;
+    }
+
+    /**
+     * parse a function call such as <code>concat("a", index())</code>
+     * @param text the text of the call
+     * @return the parsed call
+     * @throws ParseException if the text is not a function call
+     */
+    public static FunctionCallExpression parse(final CharSequence text) throws ParseException {
+        notNull(text, "text can not be null");
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * parse a function call from part of a text
+     * @param text the text that contains the call
+     * @param start the position of the first character of the call
+     * @param end the position after the last character that may be read
+     * @return the parsed call
+     * @throws ParseException if the text is not a function call
+     */
+    public static FunctionCallExpression parse(final CharSequence text, final int start,
+        final int end) throws ParseException {
+        notNull(text, "text can not be null");
+        isTrue(start >= 0 && start <= end && end <= text.length(), "invalid range");
+        return new FunctionCallParser(text, start, end).functionCall();
+    }
+
+    private FunctionCallExpression functionCall() throws ParseException {
+        skipIgnored();
+        int nameLength = identifierLength(position);
+        if (nameLength == 0 || numberLength(position) >= nameLength) {
+            throw error("function name");
+        }
+        String functionName = text.subSequence(position, position + nameLength).toString();
+        position += nameLength;
+        expect('(');
+        skipIgnored();
+        if (peek() == ')') {
+            position++;
+            return new FunctionCallExpression(functionName,
+                Collections.<FunctionExpression>emptyList());
+        }
+        List<FunctionExpression> arguments = new ArrayList<>();
+        while (true) {
+            arguments.add(argument());
+            skipIgnored();
+            char c = peek();
+            position++;
+            if (c == ')') {
+                return new FunctionCallExpression(functionName, arguments);
+            } else if (c != ',') {
+                position--;
+                throw error("',' or ')'");
+            }
+        }
+    }
+
+    private FunctionExpression argument() throws ParseException {
+        skipIgnored();
+        char c = peek();
+        if (c == '"' || c == '\'') {
+            int literalEnd = stringLiteralEnd(c);
+            LiteralExpression literal = new LiteralExpression(
+                text.subSequence(position + 1, literalEnd - 1).toString());
+            position = literalEnd;
+            return literal;
+        }
+        int numberLength = numberLength(position);
+        if (numberLength > 0 && numberLength >= identifierLength(position)) {
+            LiteralExpression literal = new LiteralExpression(
+                text.subSequence(position, position + numberLength).toString());
+            position += numberLength;
+            return literal;
+        }
+        return functionCall();
+    }
+
+    private void expect(final char expected) throws ParseException {
+        skipIgnored();
+        if (peek() != expected) {
+            throw error("'" + expected + "'");
+        }
+        position++;
+    }
+
+    private char peek() throws ParseException {
+        if (position >= end) {
+            throw new ParseException("unexpected end of function call");
+        }
+        return text.charAt(position);
+    }
+
+    private ParseException error(final String expected) {
+        return new ParseException("expected " + expected + " at position " + position
+            + " of function call: " + text.subSequence(0, end));
+    }
+
+    /**
+     * skip white space and comments, like the SKIP section of the grammar
+     */
+    private void skipIgnored() throws ParseException {
+        while (position < end) {
+            char c = text.charAt(position);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                position++;
+            } else if (c == '/' && position + 1 < end && text.charAt(position + 1) == '/') {
+                int i = position + 2;
+                while (i < end && text.charAt(i) != '\n' && text.charAt(i) != '\r') {
+                    i++;
+                }
+                if (i == end) {
+                    throw error("end of line after comment");
+                }
+                position = i;
+            } else if (c == '/' && position + 1 < end && text.charAt(position + 1) == '*') {
+                int i = position + 2;
+                while (i + 1 < end && !(text.charAt(i) == '*' && text.charAt(i + 1) == '/')) {
+                    i++;
+                }
+                if (i + 1 >= end) {
+                    throw error("end of comment");
+                }
+                position = i + 2;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * find the end of a quoted string literal.  Double quoted literals may escape
+     * <code>n t b r f \ ' "</code> and octal digits; single quoted literals the same except the
+     * single quote.
+     * @return the position after the closing quote
+     */
+    private int stringLiteralEnd(final char quote) throws ParseException {
+        int i = position + 1;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c == quote) {
+                return i + 1;
+            } else if (c == '\n' || c == '\r') {
+                break;
+            } else if (c == '\\') {
+                if (i + 1 >= end || !isEscapable(text.charAt(i + 1), quote)) {
+                    break;
+                }
+                i += 2;
+            } else {
+                i++;
+            }
+        }
+        throw error("valid string literal");
+    }
+
+    private static boolean isEscapable(final char c, final char quote) {
+        switch (c) {
+            case 'n':
+            case 't':
+            case 'b':
+            case 'r':
+            case 'f':
+            case '\\':
+            case '"':
+                return true;
+            case '\'':
+                return quote == '"';
+            default:
+                return c >= '0' && c <= '7';
+        }
+    }
+
+    /**
+     * length of the longest IDENTIFIER token at a position
+     */
+    private int identifierLength(final int start) {
+        if (start >= end || !isLetter(text.charAt(start))) {
+            return 0;
+        }
+        int i = start + 1;
+        while (i < end && (isLetter(text.charAt(i)) || isDigit(text.charAt(i)))) {
+            i++;
+        }
+        return i - start;
+    }
+
+    /**
+     * length of the longest NUMBER token at a position: an integer with an optional
+     * <code>L</code> or a floating point literal
+     */
+    private int numberLength(final int start) {
+        int digitsStart = start < end && text.charAt(start) == '-' ? start + 1 : start;
+        int digits = digitCount(digitsStart);
+        int integerLength = 0;
+        if (digits > 0 && text.charAt(digitsStart) != '0') {
+            integerLength = digitsStart + digits - start;
+        } else if (digits > 0 && digitsStart == start) {
+            integerLength = 1;
+        }
+        if (integerLength > 0 && charAt(start + integerLength) == 'L') {
+            integerLength++;
+        }
+        int floatEnd = -1;
+        if (digits > 0) {
+            int i = digitsStart + digits;
+            if (charAt(i) == '.') {
+                i++;
+                i += digitCount(i);
+                i += exponentLength(i);
+                floatEnd = i + (isFloatSuffix(charAt(i)) ? 1 : 0);
+            } else if (exponentLength(i) > 0) {
+                i += exponentLength(i);
+                floatEnd = i + (isFloatSuffix(charAt(i)) ? 1 : 0);
+            } else if (isFloatSuffix(charAt(i))) {
+                floatEnd = i + 1;
+            }
+        } else if (charAt(digitsStart) == '.' && digitCount(digitsStart + 1) > 0) {
+            int i = digitsStart + 1;
+            i += digitCount(i);
+            i += exponentLength(i);
+            floatEnd = i + (isFloatSuffix(charAt(i)) ? 1 : 0);
+        }
+        return Math.max(integerLength, floatEnd - start);
+    }
+
+    private int exponentLength(final int start) {
+        char c = charAt(start);
+        if (c != 'e' && c != 'E') {
+            return 0;
+        }
+        int i = start + 1;
+        if (charAt(i) == '+' || charAt(i) == '-') {
+            i++;
+        }
+        int digits = digitCount(i);
+        return digits > 0 ? i + digits - start : 0;
+    }
+
+    private int digitCount(final int start) {
+        int i = start;
+        while (i < end && isDigit(text.charAt(i))) {
+            i++;
+        }
+        return i - start;
+    }
+
+    private char charAt(final int index) {
+        return index < end ? text.charAt(index) : 0;
+    }
+
+    private static boolean isFloatSuffix(final char c) {
+        return c == 'f' || c == 'F' || c == 'd' || c == 'D';
+    }
+
+    private static boolean isLetter(final char c) {
+        return c == '_' || c == '-' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+}
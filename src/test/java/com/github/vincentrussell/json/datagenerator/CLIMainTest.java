@@ -14,6 +14,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.io.FileUtils;
@@ -140,6 +141,23 @@ public class CLIMainTest {
         }
     }
 
+    @Test
+    public void rateControlledRunSystemOut() throws IOException, JsonDataGeneratorException, ParseException, ClassNotFoundException {
+        try (FileOutputStream fileOutputStream = new FileOutputStream(sourceFile)) {
+            IOUtils.write("['{{repeat(50)}}', {\"id\": {{index()}}, \"name\": \"{{firstName()}}\"}]",
+                fileOutputStream);
+        }
+        long start = System.nanoTime();
+        CLIMain.main(new String[]{"-s", sourceFile.getAbsolutePath(), "-rate", "constant:200"});
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(240));
+        String[] lines = systemOutRule.getLog().trim().split("\\r?\\n");
+        assertEquals(50, lines.length);
+        for (String line : lines) {
+            JsonObject obj = (JsonObject) new com.google.gson.JsonParser().parse(line);
+            assertTrue(obj.has("name"));
+        }
+    }
+
     @Test
     public void registerAdditionalFunction() throws IOException, JsonDataGeneratorException, ParseException, ClassNotFoundException {
         destinationFile.delete();
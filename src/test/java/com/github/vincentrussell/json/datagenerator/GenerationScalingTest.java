@@ -0,0 +1,271 @@
+package com.github.vincentrussell.json.datagenerator;
+
+import com.synectiks.json.datagenerator.JsonDataGeneratorException;
+import com.synectiks.json.datagenerator.impl.JsonDataGeneratorImpl;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * generates templates of geometrically increasing size along one dimension at a time (repeat
+ * count, nesting depth, function density, literal size) and fails when the time or the memory
+ * allocated per generation grows faster than linearly.  The growth exponent is the slope of a
+ * least squares fit of log(cost) against log(size), so 1 is linear and 2 is quadratic.
+ *
+ * Not part of the default build; run it with <code>mvn -P scaling test</code>.
+ */
+public class GenerationScalingTest {
+
+    private static final int[] SCALES = {1, 2, 4, 8, 16};
+    private static final double MAX_TIME_EXPONENT = 1.3;
+    private static final double MAX_ALLOCATION_EXPONENT = 1.15;
+    private static final long MIN_MEASUREMENT_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final int TRIALS = 5;
+
+    private static com.sun.management.ThreadMXBean threadMXBean;
+
+    private final JsonDataGeneratorImpl generator = new JsonDataGeneratorImpl();
+    private final NullOutputStream outputStream = new NullOutputStream();
+
+    @BeforeClass
+    public static void setUpAllocationCounter() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threadMXBean = (com.sun.management.ThreadMXBean) bean;
+            threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    @Test
+    public void repeatCount() throws JsonDataGeneratorException {
+        assertLinear("repeat count", 2000, new TemplateFactory() {
+            @Override
+            public String create(final int size) {
+                return "[\n    '{{repeat(" + size + ")}}',\n    {\n"
+                    + "        \"id\": {{index()}},\n"
+                    + "        \"name\": \"{{firstName()}} {{lastName()}}\",\n"
+                    + "        \"tags\": ['{{repeat(3)}}', \"{{lorem(1, 'words')}}\"]\n"
+                    + "    }\n]";
+            }
+        });
+    }
+
+    @Test
+    public void xmlRepeatCount() throws JsonDataGeneratorException {
+        assertLinear("xml repeat count", 2000, new TemplateFactory() {
+            @Override
+            public String create(final int size) {
+                return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root>\n"
+                    + "  '{{repeat(" + size + ")}}',\n"
+                    + "  <element>\n"
+                    + "    <id>{{index()}}</id>\n"
+                    + "    <name>{{firstName()}}</name>\n"
+                    + "  </element>\n</root>";
+            }
+        });
+    }
+
+    @Test
+    public void repeatBodySize() throws JsonDataGeneratorException {
+        assertLinear("repeat body size", 200, new TemplateFactory() {
+            @Override
+            public String create(final int size) {
+                StringBuilder template = new StringBuilder("[\n    '{{repeat(20)}}',\n    {\n");
+                for (int i = 0; i < size; i++) {
+                    template.append("        \"field").append(i).append("\": \"{{alpha(8)}}\",\n");
+                }
+                return template.append("        \"last\": true\n    }\n]").toString();
+            }
+        });
+    }
+
+    @Test
+    public void nestedRepeatDepth() throws JsonDataGeneratorException {
+        assertLinear("nested repeat depth", 16, new TemplateFactory() {
+            @Override
+            public String create(final int size) {
+                StringBuilder template = new StringBuilder();
+                for (int i = 0; i < size; i++) {
+                    template.append("{\"level\": {{index()}}, \"children\": ['{{repeat(1)}}', ");
+                }
+                template.append("\"{{uuid()}}\"");
+                for (int i = 0; i < size; i++) {
+                    template.append("]}");
+                }
+                return "['{{repeat(50)}}', " + template + "]";
+            }
+        });
+    }
+
+    @Test
+    public void nestedXmlRepeatDepth() throws JsonDataGeneratorException {
+        assertLinear("nested xml repeat depth", 16, new TemplateFactory() {
+            @Override
+            public String create(final int size) {
+                StringBuilder template = new StringBuilder("<root>\n'{{repeat(50)}}',\n");
+                for (int i = 0; i < size; i++) {
+                    template.append("<level").append(i).append("><id>{{index()}}</id>\n")
+                        .append("'{{repeat(1)}}',\n");
+                }
+                template.append("<leaf>{{uuid()}}</leaf>\n");
+                for (int i = size - 1; i >= 0; i--) {
+                    template.append("</level").append(i).append(">\n");
+                }
+                return template.append("</root>").toString();
+            }
+        });
+    }
+
+    @Test
+    public void nestedFunctionDepth()throws JsonDataGeneratorException {
+        assertLinear("nested function depth", 16, new TemplateFactory() {
+            @Override
+            public String create(final int size) {
+                StringBuilder call = new StringBuilder();
+                for (int i = 0; i < size; i++) {
+                    call.append("random(");
+                }
+                call.append("firstName()");
+                for (int i = 0; i < size; i++) {
+                    call.append(')');
+                }
+                return "['{{repeat(200)}}', \"{{" + call + "}}\"]";
+            }
+        });
+    }
+
+    @Test
+    public void functionDensity() throws JsonDataGeneratorException {
+        assertLinear("functions per line", 100, new TemplateFactory() {
+            @Override
+            public String create(final int size) {
+                StringBuilder template = new StringBuilder("{\"text\": \"");
+                for (int i = 0; i < size; i++) {
+                    template.append("{{integer(1, 100)}} ");
+                }
+                return template.append("\"}").toString();
+            }
+        });
+    }
+
+    @Test
+    public void literalSize() throws JsonDataGeneratorException {
+        assertLinear("literal text size", 20000, new TemplateFactory() {
+            @Override
+            public String create(final int size) {
+                StringBuilder template = new StringBuilder("{\"text\": \"");
+                for (int i = 0; i < size; i++) {
+                    template.append("lorem ipsum ");
+                }
+                return template.append("{{uuid()}}\"}").toString();
+            }
+        });
+    }
+
+    private void assertLinear(final String dimension, final int baseSize,
+        final TemplateFactory templateFactory) throws JsonDataGeneratorException {
+        double[] sizes = new double[SCALES.length];
+        double[] nanos = new double[SCALES.length];
+        double[] allocatedBytes = new double[SCALES.length];
+        String largest = templateFactory.create(baseSize * SCALES[SCALES.length - 1]);
+        measure(largest);
+        for (int i = 0; i < SCALES.length; i++) {
+            sizes[i] = baseSize * SCALES[i];
+            Measurement measurement = measure(templateFactory.create(baseSize * SCALES[i]));
+            nanos[i] = measurement.nanos;
+            allocatedBytes[i] = measurement.allocatedBytes;
+        }
+        double timeExponent = growthExponent(sizes, nanos);
+        assertTrue(dimension + ": time grows with exponent " + timeExponent + " "
+                + describe(sizes, nanos, "ns"), timeExponent <= MAX_TIME_EXPONENT);
+        if (threadMXBean != null) {
+            double allocationExponent = growthExponent(sizes, allocatedBytes);
+            assertTrue(dimension + ": allocation grows with exponent " + allocationExponent + " "
+                    + describe(sizes, allocatedBytes, "bytes"),
+                allocationExponent <= MAX_ALLOCATION_EXPONENT);
+        }
+    }
+
+    /**
+     * best time and allocation of a generation over several trials, each of which generates the
+     * template repeatedly for at least {@link #MIN_MEASUREMENT_NANOS}
+     */
+    private Measurement measure(final String template) throws JsonDataGeneratorException {
+        Measurement best = null;
+        for (int trial = 0; trial < TRIALS; trial++) {
+            long operations = 0;
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                generator.generateTestDataJson(template, outputStream);
+                operations++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < MIN_MEASUREMENT_NANOS);
+            Measurement measurement = new Measurement((double) elapsed / operations,
+                (double) (allocatedBytes() - allocatedBefore) / operations);
+            if (best == null || measurement.nanos < best.nanos) {
+                best = measurement;
+            }
+        }
+        return best;
+    }
+
+    private static long allocatedBytes() {
+        return threadMXBean != null
+            ? threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    /**
+     * slope of the least squares line through (log(size), log(cost))
+     */
+    private static double growthExponent(final double[] sizes, final double[] costs) {
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            meanX += Math.log(sizes[i]) / sizes.length;
+            meanY += Math.log(costs[i]) / sizes.length;
+        }
+        double covariance = 0;
+        double variance = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            double dx = Math.log(sizes[i]) - meanX;
+            covariance += dx * (Math.log(costs[i]) - meanY);
+            variance += dx * dx;
+        }
+        return covariance / variance;
+    }
+
+    private static String describe(final double[] sizes, final double[] costs, final String unit) {
+        StringBuilder description = new StringBuilder("(");
+        for (int i = 0; i < sizes.length; i++) {
+            if (i > 0) {
+                description.append(", ");
+            }
+            description.append((long) sizes[i]).append(": ").append((long) costs[i]).append(' ')
+                .append(unit);
+        }
+        return description.append(')').toString();
+    }
+
+    private interface TemplateFactory {
+        String create(int size);
+    }
+
+    private static final class Measurement {
+        private final double nanos;
+        private final double allocatedBytes;
+
+        private Measurement(final double nanos, final double allocatedBytes) {
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+}
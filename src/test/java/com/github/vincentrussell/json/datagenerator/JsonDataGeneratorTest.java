@@ -7,11 +7,19 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import com.synectiks.json.datagenerator.CompiledTemplate;
+import com.synectiks.json.datagenerator.GenerationResult;
 import com.synectiks.json.datagenerator.JsonDataGeneratorException;
+import com.synectiks.json.datagenerator.RenderOptions;
+import com.synectiks.json.datagenerator.functions.Function;
+import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.FunctionRegistry;
 import com.synectiks.json.datagenerator.functions.impl.Index;
 import com.synectiks.json.datagenerator.impl.JsonDataGeneratorImpl;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.custommonkey.xmlunit.XMLUnit;
 import org.custommonkey.xmlunit.XpathEngine;
 import org.custommonkey.xmlunit.exceptions.XpathException;
@@ -31,9 +39,15 @@ import java.nio.file.Paths;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.isA;
 import static org.junit.Assert.*;
@@ -82,6 +96,12 @@ public class JsonDataGeneratorTest{
         }
     }
 
+    private void compiledClasspathJsonTests(String source) throws IOException, JsonDataGeneratorException {
+        CompiledTemplate compiledTemplate = parser.compile(this.getClass().getClassLoader().getResource(source));
+        compiledTemplate.render(outputStream);
+        Approvals.verify(outputStream.toString("UTF-8"), getApprovalPath(source));
+    }
+
     @Test
     public void sourceFileNotFound() throws JsonDataGeneratorException {
         expectedException.expect(JsonDataGeneratorException.class);
@@ -379,4 +399,455 @@ public class JsonDataGeneratorTest{
 		assertTrue(simpleXpathEngine.evaluate("//root/friends/friend[2]/name", doc).length() > 1);
 		assertTrue(simpleXpathEngine.evaluate("//root/friends/friend[3]/name", doc).length() > 1);
     }
+
+    @Test
+    public void compiledTemplateMatchesApprovals() throws IOException, JsonDataGeneratorException {
+        for (String source : Lists.newArrayList("foreignCharacters.json", "copyJson.json",
+            "copyDoubleNestedJson.json", "invalidFunction.json", "repeatNonFunctionJsonArray.json",
+            "putGetTest.json")) {
+            outputStream.reset();
+            compiledClasspathJsonTests(source);
+        }
+    }
+
+    @Test
+    public void compiledTemplateIndexFunctionNested() throws IOException, JsonDataGeneratorException {
+        compiledClasspathJsonTests("indexFunctionNested.json");
+    }
+
+    @Test
+    public void compiledTemplateResetIndex() throws IOException, JsonDataGeneratorException {
+        compiledClasspathJsonTests("resetIndex.json");
+    }
+
+    @Test
+    public void compiledTemplateRendersRepeatedly() throws IOException, JsonDataGeneratorException {
+        CompiledTemplate compiledTemplate = parser.compile("[\n" +
+                "  '{{repeat(3)}}',\n" +
+                "  {\n" +
+                "    index: {{index()}},\n" +
+                "    tags: ['{{repeat(2, 5)}}', \"{{lorem(1, \"words\")}}\"],\n" +
+                "    escaped: \"{{concat(\"\\{\", \"test\", \"\\}\")}}\"\n" +
+                "  }\n" +
+                "]");
+        for (int render = 0; render < 2; render++) {
+            outputStream.reset();
+            compiledTemplate.render(outputStream);
+            JsonArray array = (JsonArray) new com.google.gson.JsonParser().parse(outputStream.toString("UTF-8"));
+            assertEquals(3, array.size());
+            for (int i = 0; i < array.size(); i++) {
+                JsonObject obj = array.get(i).getAsJsonObject();
+                assertEquals(render * 3 + i, obj.get("index").getAsInt());
+                int tagCount = obj.getAsJsonArray("tags").size();
+                assertTrue(tagCount >= 2 && tagCount < 5);
+                assertEquals("{test}", obj.get("escaped").getAsString());
+            }
+        }
+    }
+
+    @Test
+    public void compiledTemplateInvalidScenario() throws IOException, JsonDataGeneratorException {
+        parser.compile("{{").render(outputStream);
+        assertEquals("{{}}", outputStream.toString("UTF-8"));
+        outputStream.reset();
+        parser.compile("{ {{ { {{integer(1, 1)} }}").render(outputStream);
+        assertEquals("{ {{ { {{integer(1, 1)} }}", outputStream.toString("UTF-8"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compiledTemplateInvalidRepeatRange() throws JsonDataGeneratorException {
+        parser.compile("['{{repeat(10,3)}}', 1]");
+    }
+
+    @Test
+    public void generationResultSummarizesRender() throws IOException, JsonDataGeneratorException {
+        GenerationResult result = parser.generateTestDataJson("[\n" +
+                "  '{{repeat(3)}}',\n" +
+                "  {\n" +
+                "    index: {{index()}},\n" +
+                "    tags: ['{{repeat(2)}}', \"{{concat(\"a\", \"b\")}}\"]\n" +
+                "  }\n" +
+                "]", outputStream);
+        assertEquals(3, result.getRecords());
+        assertEquals(outputStream.toByteArray().length, result.getBytes());
+        assertEquals(Long.valueOf(3), result.getFunctionCounts().get("index"));
+        assertFalse(result.getFunctionCounts().containsKey("concat"));
+        assertTrue(result.getElapsedTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void randomOnlyEvaluatesChosenOption() throws IOException, JsonDataGeneratorException {
+        GenerationResult result = parser.generateTestDataJson("[\n" +
+                "  '{{repeat(50)}}',\n" +
+                "  \"{{random(firstName(), gender(), lorem(3, \"words\"))}}\"\n" +
+                "]", outputStream);
+        Map<String, Long> functionCounts = result.getFunctionCounts();
+        long evaluated = 0;
+        for (String option : new String[] {"firstName", "gender", "lorem"}) {
+            evaluated += functionCounts.containsKey(option) ? functionCounts.get(option) : 0;
+        }
+        assertEquals(Long.valueOf(50), functionCounts.get("random"));
+        assertEquals(50, evaluated);
+    }
+
+    @Test
+    public void pureFunctionsWithLiteralArgumentsAreFolded() throws IOException, JsonDataGeneratorException {
+        GenerationResult result = parser.generateTestDataJson("[\n" +
+                "  '{{repeat(3)}}',\n" +
+                "  {\"a\": \"{{toUpperCase(concat(\"x\", \"y\"))}}\", " +
+                "\"b\": \"{{concat(toLowerCase(\"N\"), index())}}\"}\n" +
+                "]", outputStream);
+        assertEquals("[{\"a\":\"XY\",\"b\":\"n0\"},{\"a\":\"XY\",\"b\":\"n1\"},"
+                + "{\"a\":\"XY\",\"b\":\"n2\"}]", outputStream.toString("UTF-8").replaceAll("\\s", ""));
+        assertEquals(Long.valueOf(3), result.getFunctionCounts().get("concat"));
+        assertFalse(result.getFunctionCounts().containsKey("toUpperCase"));
+        assertFalse(result.getFunctionCounts().containsKey("toLowerCase"));
+    }
+
+    @Test
+    public void generationResultWithoutRepeatCountsOneRecord() throws IOException, JsonDataGeneratorException {
+        GenerationResult result = parser.generateTestDataJson(
+            new ByteArrayInputStream("{\"a\": \"{{concat(\"b\")}}\"}".getBytes("UTF-8")), outputStream);
+        assertEquals("{\"a\": \"b\"}", outputStream.toString("UTF-8"));
+        assertEquals(1, result.getRecords());
+        assertEquals(outputStream.toByteArray().length, result.getBytes());
+    }
+
+    @Test
+    public void parallelRenderKeepsElementOrder() throws IOException, JsonDataGeneratorException {
+        String template = "[\n" +
+                "  '{{repeat(5000)}}',\n" +
+                "  {\n" +
+                "    index: {{index()}},\n" +
+                "    offset: {{index(\"named\", 10)}},\n" +
+                "    tags: ['{{repeat(2)}}', \"{{concat(\"a\", \"b\")}}\"]\n" +
+                "  }\n" +
+                "]";
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        parser.generateTestDataJson(template, sequential);
+        ((Map<?, ?>)ReflectionTestUtils.getField(Index.class,"STRING_INDEX_HOLDER_MAP")).clear();
+
+        GenerationResult result = parser.compile(template)
+            .render(outputStream, new RenderOptions().setThreads(4));
+        assertEquals(sequential.toString("UTF-8"), outputStream.toString("UTF-8"));
+        assertEquals(5000, result.getRecords());
+        assertEquals(outputStream.toByteArray().length, result.getBytes());
+        assertEquals(Long.valueOf(10000), result.getFunctionCounts().get("index"));
+        assertFalse(result.getFunctionCounts().containsKey("concat"));
+    }
+
+    @Test
+    public void parallelRenderGivesEachElementItsOwnIndexes() throws IOException, JsonDataGeneratorException {
+        String template = "{\"header\": {{index()}}, \"items\": [ '{{repeat(3000)}}', { \"id\": {{index()}}, "
+            + "\"parent\": {{index()}}, \"code\": \"{{index('code', 100)}}\", "
+            + "\"children\": [ '{{repeat(2)}}', { \"id\": {{index()}} } ] } ]}";
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        parser.compile(template).render(sequential);
+        ((Map<?, ?>)ReflectionTestUtils.getField(Index.class,"STRING_INDEX_HOLDER_MAP")).clear();
+        parser.compile(template).render(outputStream, new RenderOptions().setThreads(4));
+        assertEquals(sequential.toString("UTF-8"), outputStream.toString("UTF-8"));
+
+        ((Map<?, ?>)ReflectionTestUtils.getField(Index.class,"STRING_INDEX_HOLDER_MAP")).clear();
+        ByteArrayOutputStream unordered = new ByteArrayOutputStream();
+        parser.compile(template).render(unordered, new RenderOptions().setThreads(4).setOrdered(false));
+        JsonObject obj = (JsonObject) new com.google.gson.JsonParser().parse(unordered.toString("UTF-8"));
+        assertEquals(0, obj.get("header").getAsInt());
+        boolean[] seen = new boolean[1 + 3000 * 4];
+        seen[0] = true;
+        for (JsonElement item : obj.getAsJsonArray("items")) {
+            JsonObject element = item.getAsJsonObject();
+            int id = element.get("id").getAsInt();
+            assertEquals(0, (id - 1) % 4);
+            assertEquals(id + 1, element.get("parent").getAsInt());
+            assertEquals(100 + (id - 1) / 4, element.get("code").getAsInt());
+            for (JsonElement child : element.getAsJsonArray("children")) {
+                assertFalse(seen[child.getAsJsonObject().get("id").getAsInt()]);
+                seen[child.getAsJsonObject().get("id").getAsInt()] = true;
+            }
+            assertFalse(seen[id] || seen[id + 1]);
+            seen[id] = true;
+            seen[id + 1] = true;
+        }
+        for (boolean indexSeen : seen) {
+            assertTrue(indexSeen);
+        }
+    }
+
+    @Test
+    public void parallelUnorderedRenderWritesEveryElement() throws IOException, JsonDataGeneratorException {
+        new JsonDataGeneratorImpl(new RenderOptions().setThreads(4).setOrdered(false))
+            .generateTestDataJson("{\"items\": ['{{repeat(3000)}}', {\"index\": {{index()}}}], \"after\": 1}", outputStream);
+        JsonObject obj = (JsonObject) new com.google.gson.JsonParser().parse(outputStream.toString("UTF-8"));
+        JsonArray items = obj.getAsJsonArray("items");
+        assertEquals(3000, items.size());
+        boolean[] seen = new boolean[3000];
+        for (JsonElement item : items) {
+            seen[item.getAsJsonObject().get("index").getAsInt()] = true;
+        }
+        for (boolean indexSeen : seen) {
+            assertTrue(indexSeen);
+        }
+        assertEquals(1, obj.get("after").getAsInt());
+    }
+
+    @Test
+    public void parallelRenderScopesPutAndGetToRecord() throws IOException, JsonDataGeneratorException {
+        parser.compile("['{{repeat(2000)}}', {\"a\": \"{{put(\"key\", uuid())}}\", \"b\": \"{{get(\"key\")}}\"}]")
+            .render(outputStream, new RenderOptions().setThreads(3));
+        JsonArray array = (JsonArray) new com.google.gson.JsonParser().parse(outputStream.toString("UTF-8"));
+        assertEquals(2000, array.size());
+        for (JsonElement element : array) {
+            JsonObject obj = element.getAsJsonObject();
+            assertEquals(obj.get("a").getAsString(), obj.get("b").getAsString());
+        }
+    }
+
+    @Test
+    public void seededRenderIsReproducible() throws IOException, JsonDataGeneratorException {
+        CompiledTemplate compiledTemplate = parser.compile("{\"batch\": \"{{uuid()}}\", \"items\": ['{{repeat(50, 100)}}', " +
+            "{\"index\": {{index()}}, \"id\": \"{{uuid()}}\", \"name\": \"{{firstName()}} {{lastName()}}\", " +
+            "\"tags\": ['{{repeat(1, 4)}}', \"{{alpha(5)}}\"], \"amount\": {{double(1, 100)}}, \"ip\": \"{{ipv6()}}\", " +
+            "\"hex\": \"{{hex(4)}}\", \"flag\": {{bool()}}}], \"more\": ['{{repeat(5, 10)}}', {{integer(1, 1000)}}]}");
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        GenerationResult result = compiledTemplate.render(expected, new RenderOptions().setSeed(1234L));
+        assertEquals(Long.valueOf(1234L), result.getSeed());
+        for (int threads : new int[] {1, 2, 4, 7}) {
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            compiledTemplate.render(actual, new RenderOptions().setSeed(1234L).setThreads(threads).setOrdered(true));
+            assertEquals(expected.toString("UTF-8"), actual.toString("UTF-8"));
+        }
+        ByteArrayOutputStream other = new ByteArrayOutputStream();
+        compiledTemplate.render(other, new RenderOptions().setSeed(4321L));
+        assertNotEquals(expected.toString("UTF-8"), other.toString("UTF-8"));
+    }
+
+    @Test
+    public void mappedTemplateFileRendersLikeTemplateText() throws IOException, JsonDataGeneratorException {
+        List<String> templates = Lists.newArrayList(
+            "{\"a\": \"{{concat(\"b\", \"c\")}}\", \"ü\": \"{{random(\"中文替换\", \"Как\")}}\", \"lone\": \"{ {x}\", "
+                + "\"escaped\": \"{{concat(\"\\{\\{\", \"\\}\\}\")}}\", \"unknown\": \"{{notAFunction(é)}}\", "
+                + "\"items\": ['{{repeat(3, 6)}}', {\"name\": \"Ωmega {{firstName()}}\", \"tags\": ['{{repeat(2)}}', \"ö{{alpha(3)}}\"]}]}");
+        for (String source : new String[] {"foreignCharacters.json", "foreignCharactersWithinTokenResolver.json",
+            "copyDoubleNestedJson.json", "indexFunctionNested.json", "invalidFunction.json",
+            "repeatFunctionJsonArrayQuotes.json", "xmlfunctionWithRepeat.xml"}) {
+            try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(source)) {
+                templates.add(IOUtils.toString(inputStream, "UTF-8"));
+            }
+        }
+        for (String template : templates) {
+            File templateFile = temporaryFolder.newFile();
+            try (OutputStream fileOutputStream = new FileOutputStream(templateFile)) {
+                fileOutputStream.write(template.getBytes("UTF-8"));
+            }
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            ((Map<?, ?>)ReflectionTestUtils.getField(Index.class,"STRING_INDEX_HOLDER_MAP")).clear();
+            parser.compile(template).render(expected, new RenderOptions().setSeed(42L));
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            ((Map<?, ?>)ReflectionTestUtils.getField(Index.class,"STRING_INDEX_HOLDER_MAP")).clear();
+            parser.compile(templateFile).render(actual, new RenderOptions().setSeed(42L).setThreads(3).setOrdered(true));
+            assertEquals(expected.toString("UTF-8"), actual.toString("UTF-8"));
+        }
+    }
+
+    @Test
+    public void mappedTemplateFileFindsTokensAtEveryAlignment() throws IOException, JsonDataGeneratorException {
+        String body = "{\"a\": ['{{repeat(3)}}', {\"b\": \"{{concat('x', 'y')}}{ lone }\", \"c\": {{integer(1, 5)}}}], "
+            + "\"d\": \"{{notAFunction()}}\", \"e\": {\"f\": ['{{repeat(2)}}', \"{{alpha(2)}}\"]}}";
+        StringBuilder prefix = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            String template = prefix + body + prefix;
+            File templateFile = temporaryFolder.newFile();
+            try (OutputStream fileOutputStream = new FileOutputStream(templateFile)) {
+                fileOutputStream.write(template.getBytes("UTF-8"));
+            }
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            parser.compile(template).render(expected, new RenderOptions().setSeed((long) i));
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            parser.compile(templateFile).render(actual, new RenderOptions().setSeed((long) i));
+            assertEquals(expected.toString("UTF-8"), actual.toString("UTF-8"));
+            prefix.append(i % 3 == 0 ? "é" : "x");
+        }
+    }
+
+    @Test
+    public void indexesMatchTheSingleThreadedRenderWithASeedOrMoreThreads() throws IOException, JsonDataGeneratorException {
+        String template = "[ '{{repeat(50)}}', { \"a\": {{index()}}, \"b\": {{index()}}, \"n\": \"{{index('outer', 10)}}\", "
+            + "\"f\": [ '{{repeat(3)}}', { \"x\": \"{{index('inner')}}\", \"d\": {{index()}} } ], "
+            + "\"c\": \"{{concat('id-', index('outer'))}}\" } ]";
+        CompiledTemplate compiledTemplate = parser.compile(template);
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        compiledTemplate.render(sequential);
+        JsonArray array = (JsonArray) new com.google.gson.JsonParser().parse(sequential.toString("UTF-8"));
+        for (int record = 0; record < 50; record++) {
+            JsonObject obj = array.get(record).getAsJsonObject();
+            assertEquals(record * 5, obj.get("a").getAsInt());
+            assertEquals(record * 5 + 1, obj.get("b").getAsInt());
+            assertEquals(String.valueOf(10 + record * 2), obj.get("n").getAsString());
+            assertEquals("id-" + (11 + record * 2), obj.get("c").getAsString());
+            JsonArray nested = obj.getAsJsonArray("f");
+            for (int element = 0; element < 3; element++) {
+                assertEquals(String.valueOf(record * 3 + element), nested.get(element).getAsJsonObject().get("x").getAsString());
+                assertEquals(record * 5 + 2 + element, nested.get(element).getAsJsonObject().get("d").getAsInt());
+            }
+        }
+        for (RenderOptions renderOptions : new RenderOptions[] {new RenderOptions().setThreads(4),
+            new RenderOptions().setSeed(5L), new RenderOptions().setSeed(5L).setThreads(4)}) {
+            ((Map<?, ?>)ReflectionTestUtils.getField(Index.class,"STRING_INDEX_HOLDER_MAP")).clear();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            compiledTemplate.render(output, renderOptions);
+            assertEquals(sequential.toString("UTF-8"), output.toString("UTF-8"));
+        }
+    }
+
+    @Test
+    public void indexesInRepeatsOfRandomLengthMatchTheSingleThreadedRender() throws IOException, JsonDataGeneratorException {
+        String template = "{\"first\": {{index()}}, \"items\": [ '{{repeat(200)}}', { \"a\": {{index()}}, "
+            + "\"tags\": [ '{{repeat(1, 4)}}', { \"t\": {{index('tag')}} } ], \"b\": {{index()}} } ], "
+            + "\"more\": [ '{{repeat(100)}}', { \"m\": {{index()}}{{resetIndex('tag')}} } ], \"last\": {{index()}}}";
+        CompiledTemplate compiledTemplate = parser.compile(template);
+        String expected = null;
+        for (int threads : new int[] {1, 4}) {
+            ((Map<?, ?>)ReflectionTestUtils.getField(Index.class,"STRING_INDEX_HOLDER_MAP")).clear();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            compiledTemplate.render(output, new RenderOptions().setSeed(8L).setThreads(threads));
+            if (expected == null) {
+                expected = output.toString("UTF-8");
+            }
+            assertEquals(expected, output.toString("UTF-8"));
+        }
+        JsonObject obj = (JsonObject) new com.google.gson.JsonParser().parse(expected);
+        assertEquals(0, obj.get("first").getAsInt());
+        int tags = 0;
+        for (int record = 0; record < 200; record++) {
+            JsonObject item = obj.getAsJsonArray("items").get(record).getAsJsonObject();
+            assertEquals(1 + record * 2, item.get("a").getAsInt());
+            assertEquals(2 + record * 2, item.get("b").getAsInt());
+            for (JsonElement tag : item.getAsJsonArray("tags")) {
+                assertEquals(tags++, tag.getAsJsonObject().get("t").getAsInt());
+            }
+        }
+        for (int record = 0; record < 100; record++) {
+            assertEquals(401 + record, obj.getAsJsonArray("more").get(record).getAsJsonObject().get("m").getAsInt());
+        }
+        assertEquals(501, obj.get("last").getAsInt());
+    }
+
+    @Test
+    public void unseededRenderHasNoSeed() throws IOException, JsonDataGeneratorException {
+        assertNull(parser.generateTestDataJson("{{integer(1, 10)}}", outputStream).getSeed());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void renderOptionsRequirePositiveThreads() {
+        new RenderOptions().setThreads(0);
+    }
+
+    @Test
+    public void generateTestDataJsonAsString() throws IOException, JsonDataGeneratorException {
+        String result = parser.generateTestDataJsonAsString(
+            new ByteArrayInputStream("{\"a\": \"{{concat(\"b\", \"c\")}}\"}".getBytes("UTF-8")), outputStream);
+        assertEquals("{\"a\": \"bc\"}", result);
+        assertEquals(result, outputStream.toString("UTF-8"));
+    }
+
+    @Test
+    public void compiledXmlTemplate() throws IOException, JsonDataGeneratorException, SAXException, ParserConfigurationException, XpathException {
+        parser.compile(this.getClass().getClassLoader().getResource("xmlfunctionWithRepeat.xml")).render(outputStream);
+
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        Document doc = dbf.newDocumentBuilder().parse(new ByteArrayInputStream(outputStream.toByteArray()));
+        XpathEngine simpleXpathEngine = XMLUnit.newXpathEngine();
+        assertEquals(7, simpleXpathEngine.evaluate("//root/tags", doc).split(",").length);
+        assertTrue(simpleXpathEngine.evaluate("//root/element[2]/name", doc).length() > 1);
+        assertTrue(simpleXpathEngine.evaluate("//root/friends/friend[3]/name", doc).length() > 1);
+    }
+
+    @Test
+    public void nestedRepeatsAreStreamed() throws IOException, JsonDataGeneratorException {
+        CountingOutputStream countingOutputStream = new CountingOutputStream(new NullOutputStream());
+        parser.generateTestDataJson("['{{repeat(2000)}}', {\"a\": ['{{repeat(500)}}', 1]}]", countingOutputStream);
+        long arrayLength = "[".length() + 500 * " 1".length() + 499 * ",\n".length() + "]".length();
+        long elementLength = " {\"a\": ".length() + arrayLength + "}".length();
+        assertEquals(1 + 2000 * elementLength + 1999 * 2 + 1, countingOutputStream.getByteCount());
+    }
+
+    @Test
+    public void generatorWithOwnRegistryKeepsCustomFunctionsToItself() throws IOException, JsonDataGeneratorException {
+        FunctionRegistry functionRegistry = new FunctionRegistry();
+        functionRegistry.registerClass(Shout.class);
+        String template = "{\"a\": \"{{shout(\"hi\")}}\", \"b\": \"{{concat(\"x\", \"y\")}}\"}";
+
+        new JsonDataGeneratorImpl(new RenderOptions(), functionRegistry).generateTestDataJson(template, outputStream);
+        assertEquals("{\"a\": \"HI!\", \"b\": \"xy\"}", outputStream.toString("UTF-8"));
+
+        ByteArrayOutputStream sharedOutputStream = new ByteArrayOutputStream();
+        parser.generateTestDataJson(template, sharedOutputStream);
+        assertEquals("{\"a\": \"{{shout(\"hi\")}}\", \"b\": \"xy\"}", sharedOutputStream.toString("UTF-8"));
+    }
+
+    @Test
+    public void seededRecordsAreTheElementsOfTheRender() throws IOException, JsonDataGeneratorException {
+        CompiledTemplate compiledTemplate = parser.compile("{\"batch\": \"{{uuid()}}\", \"items\": ['{{repeat(20, 40)}}', " +
+            "{\"index\": {{index()}}, \"id\": \"{{uuid()}}\", \"tags\": ['{{repeat(1, 4)}}', \"{{alpha(5)}}\"]}], " +
+            "\"more\": ['{{repeat(5, 10)}}', {{integer(1, 1000)}}]}");
+        RenderOptions renderOptions = new RenderOptions().setSeed(99L);
+        GenerationResult result = compiledTemplate.render(outputStream, renderOptions);
+        JsonObject rendered = new com.google.gson.JsonParser().parse(outputStream.toString("UTF-8")).getAsJsonObject();
+        List<JsonElement> expected = Lists.newArrayList(rendered.getAsJsonArray("items"));
+        expected.addAll(Lists.newArrayList(rendered.getAsJsonArray("more")));
+
+        List<JsonElement> actual = new ArrayList<>();
+        for (String record : compiledTemplate.records(renderOptions)) {
+            actual.add(new com.google.gson.JsonParser().parse(record));
+        }
+        assertEquals(expected, actual);
+        assertEquals(result.getRecords(), actual.size());
+        assertEquals(actual.size(), compiledTemplate.recordStream(renderOptions).count());
+    }
+
+    @Test
+    public void recordsAreGeneratedWhenAskedFor() throws JsonDataGeneratorException {
+        FunctionRegistry functionRegistry = new FunctionRegistry();
+        functionRegistry.registerClass(Counter.class);
+        Counter.COUNT.set(0);
+        JsonDataGeneratorImpl generator = new JsonDataGeneratorImpl(new RenderOptions(), functionRegistry);
+        Iterator<String> records = generator.records("['{{repeat(1000000)}}', {\"n\": {{count()}}}]").iterator();
+        assertEquals(0, Counter.COUNT.get());
+        assertEquals("{\"n\": 1}", records.next());
+        assertEquals("{\"n\": 2}", records.next());
+        assertEquals(2, Counter.COUNT.get());
+        assertEquals(Arrays.asList("{\"n\": 3}", "{\"n\": 4}"),
+            generator.recordStream("['{{repeat(1000000)}}', {\"n\": {{count()}}}]").limit(2).collect(Collectors.toList()));
+        assertEquals(4, Counter.COUNT.get());
+    }
+
+    @Test
+    public void templateWithoutRepeatIsOneRecord() throws JsonDataGeneratorException {
+        Iterator<String> records = parser.records("  {\"a\": \"{{concat(\"x\", \"y\")}}\"}\n").iterator();
+        assertTrue(records.hasNext());
+        assertEquals("{\"a\": \"xy\"}", records.next());
+        assertFalse(records.hasNext());
+        assertFalse(parser.records("").iterator().hasNext());
+    }
+
+    @Function(name = "count")
+    public static class Counter {
+
+        static final AtomicInteger COUNT = new AtomicInteger();
+
+        @FunctionInvocation
+        public String count() {
+            return Integer.toString(COUNT.incrementAndGet());
+        }
+    }
+
+    @Function(name = "shout")
+    public static class Shout {
+
+        @FunctionInvocation
+        public String shout(String value) {
+            return value.toUpperCase() + "!";
+        }
+    }
 }
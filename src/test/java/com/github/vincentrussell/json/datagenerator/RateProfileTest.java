@@ -0,0 +1,91 @@
+package com.github.vincentrussell.json.datagenerator;
+
+import com.synectiks.json.datagenerator.RateProfile;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class RateProfileTest {
+
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void constant() {
+        RateProfile rateProfile = RateProfile.constant(100);
+        assertEquals(100, rateProfile.getRate(0), DELTA);
+        assertEquals(100, rateProfile.getRate(seconds(3600)), DELTA);
+    }
+
+    @Test
+    public void linearRampHoldsTheLastRate() {
+        RateProfile rateProfile = RateProfile.linearRamp(10, 110, 10, TimeUnit.SECONDS);
+        assertEquals(10, rateProfile.getRate(0), DELTA);
+        assertEquals(60, rateProfile.getRate(seconds(5)), DELTA);
+        assertEquals(110, rateProfile.getRate(seconds(10)), DELTA);
+        assertEquals(110, rateProfile.getRate(seconds(100)), DELTA);
+    }
+
+    @Test
+    public void stepsHoldTheLastRate() {
+        RateProfile rateProfile = RateProfile.steps(2, TimeUnit.SECONDS, 100, 0, 300);
+        assertEquals(100, rateProfile.getRate(seconds(1.9)), DELTA);
+        assertEquals(0, rateProfile.getRate(seconds(2)), DELTA);
+        assertEquals(300, rateProfile.getRate(seconds(4)), DELTA);
+        assertEquals(300, rateProfile.getRate(seconds(400)), DELTA);
+    }
+
+    @Test
+    public void sineIsNeverNegative() {
+        RateProfile rateProfile = RateProfile.sine(100, 50, 4, TimeUnit.SECONDS);
+        assertEquals(100, rateProfile.getRate(0), DELTA);
+        assertEquals(150, rateProfile.getRate(seconds(1)), DELTA);
+        assertEquals(50, rateProfile.getRate(seconds(3)), DELTA);
+        assertEquals(150, rateProfile.getRate(seconds(5)), DELTA);
+        assertEquals(0, RateProfile.sine(100, 200, 4, TimeUnit.SECONDS).getRate(seconds(3)), DELTA);
+    }
+
+    @Test
+    public void spikesAtTheStartOfEveryInterval() {
+        RateProfile rateProfile = RateProfile.spikes(10, 1000, 10, 1, TimeUnit.SECONDS);
+        assertEquals(1000, rateProfile.getRate(0), DELTA);
+        assertEquals(10, rateProfile.getRate(seconds(1)), DELTA);
+        assertEquals(1000, rateProfile.getRate(seconds(20.5)), DELTA);
+        assertEquals(10, rateProfile.getRate(seconds(29)), DELTA);
+    }
+
+    @Test
+    public void parse() {
+        assertEquals(250, RateProfile.parse("constant:250").getRate(seconds(7)), DELTA);
+        assertEquals(55, RateProfile.parse("ramp:10:100:60").getRate(seconds(30)), DELTA);
+        assertEquals(500, RateProfile.parse("step:0.5:100, 500").getRate(seconds(0.5)), DELTA);
+        assertEquals(700, RateProfile.parse("sine:500:200:30").getRate(seconds(7.5)), DELTA);
+        assertEquals(2000, RateProfile.parse("spike:100:2000:10:1").getRate(seconds(10)), DELTA);
+        assertEquals(100, RateProfile.parse("spike:100:2000:10:1").getRate(seconds(11)), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseUnknownProfile() {
+        RateProfile.parse("square:100");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseWrongNumberOfArguments() {
+        RateProfile.parse("ramp:10:100");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseInvalidNumber() {
+        RateProfile.parse("constant:fast");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void spikeLongerThanInterval() {
+        RateProfile.spikes(10, 100, 1, 2, TimeUnit.SECONDS);
+    }
+
+    private static long seconds(final double seconds) {
+        return (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+    }
+}
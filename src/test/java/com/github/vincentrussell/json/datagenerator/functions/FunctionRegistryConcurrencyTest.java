@@ -0,0 +1,58 @@
+package com.github.vincentrussell.json.datagenerator.functions;
+
+import com.synectiks.json.datagenerator.functions.FunctionRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * runs without a class loader per test, because on newer jdks that class loader can not load the
+ * internal classes reflection generates when two threads instantiate a function at once
+ */
+public class FunctionRegistryConcurrencyTest {
+
+    ExecutorService executorService;
+
+    @Before
+    public void startExecutor() {
+        executorService = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void stopExecutor() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void concurrentFirstUseSeesEveryArity() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            final FunctionRegistry registry = new FunctionRegistry();
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            Future<String> twoArguments = executorService.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    barrier.await();
+                    return registry.executeFunction("alpha", "3", "5");
+                }
+            });
+            Future<String> oneArgument = executorService.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    barrier.await();
+                    return registry.executeFunction("alpha", "3");
+                }
+            });
+            assertNotNull(twoArguments.get());
+            assertEquals(3, oneArgument.get().length());
+        }
+    }
+}
@@ -10,11 +10,17 @@ import org.junit.runner.RunWith;
 import com.synectiks.json.datagenerator.functions.Function;
 import com.synectiks.json.datagenerator.functions.FunctionInvocation;
 import com.synectiks.json.datagenerator.functions.FunctionRegistry;
+import com.synectiks.json.datagenerator.functions.impl.Concat;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.function.Supplier;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(ClassLoaderPerTestRunner.class)
 public class FunctionRegistryTest {
@@ -135,6 +141,29 @@ public class FunctionRegistryTest {
         assertEquals("no args", functionRegistry.executeFunction("function7"));
     }
 
+    @Test
+    public void registerFunctionClassWithSupplierArguments() throws InvocationTargetException, IllegalAccessException {
+        functionRegistry.registerClass(TestLazyFunction.class);
+        assertEquals("first", functionRegistry.executeFunction("lazyFirst", "first", "second"));
+        assertEquals("second", functionRegistry.executeFunction("lazyFirst", "second"));
+    }
+
+    @Test
+    public void indexedFunctionIsLoadedOnFirstUse() throws InvocationTargetException, IllegalAccessException {
+        Map<?, ?> indexedFunctionClasses = (Map<?, ?>) ReflectionTestUtils.getField(functionRegistry, "indexedFunctionClasses");
+        assertEquals(Concat.class.getName(), indexedFunctionClasses.get("concat"));
+        assertEquals("ab", functionRegistry.executeFunction("concat", "a", "b"));
+        assertFalse(indexedFunctionClasses.containsKey("concat"));
+        assertTrue(indexedFunctionClasses.containsKey("toUpperCase"));
+    }
+
+    @Test
+    public void indexedNonOverridableFunctionCanNotBeOverridden() {
+        thrownException.expect(IllegalArgumentException.class);
+        thrownException.expectMessage(TestConcatOverride.class.getName() + " can not override existing function with the same annotation: concat because it does not allow overriding.");
+        functionRegistry.registerClass(TestConcatOverride.class);
+    }
+
     @Test
     public void nonOverridableFunction() throws InvocationTargetException, IllegalAccessException {
         thrownException.expect(IllegalArgumentException.class);
@@ -268,5 +297,28 @@ public class FunctionRegistryTest {
 
     }
 
+    @Function(name = "lazyFirst")
+    public static class TestLazyFunction {
 
+        @FunctionInvocation
+        public String invocation(Supplier<String> first, Supplier<String> second) {
+            return first.get();
+        }
+
+        @FunctionInvocation
+        public String invocation(Supplier<String> only) {
+            return only.get();
+        }
+
+    }
+
+    @Function(name = "concat")
+    public static class TestConcatOverride {
+
+        @FunctionInvocation
+        public String invocation(String... strings) {
+            return "override";
+        }
+
+    }
 }
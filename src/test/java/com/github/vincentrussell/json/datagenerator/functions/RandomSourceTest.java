@@ -0,0 +1,58 @@
+package com.github.vincentrussell.json.datagenerator.functions;
+
+import com.synectiks.json.datagenerator.functions.RandomSource;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RandomSourceTest {
+
+    @Test
+    public void sameSeedSameValues() {
+        RandomSource first = new RandomSource(42);
+        RandomSource second = new RandomSource(42);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.nextInt(0, 1000), second.nextInt(0, 1000));
+            assertEquals(first.nextLong(), second.nextLong());
+            assertEquals(first.nextDouble(), second.nextDouble(), 0);
+            assertEquals(first.nextUUID(), second.nextUUID());
+        }
+        byte[] firstBytes = new byte[13];
+        byte[] secondBytes = new byte[13];
+        first.nextBytes(firstBytes);
+        second.nextBytes(secondBytes);
+        assertArrayEquals(firstBytes, secondBytes);
+    }
+
+    @Test
+    public void splitIsDeterministicAndIndependent() {
+        RandomSource first = new RandomSource(7).split();
+        RandomSource second = new RandomSource(7).split();
+        assertEquals(first.nextLong(), second.nextLong());
+        assertNotEquals(new RandomSource(7).nextLong(), new RandomSource(7).split().nextLong());
+    }
+
+    @Test
+    public void valuesAreInRange() {
+        RandomSource randomSource = new RandomSource(1);
+        for (int i = 0; i < 1000; i++) {
+            int integer = randomSource.nextInt(5, 10);
+            assertTrue(integer >= 5 && integer < 10);
+            float f = randomSource.nextFloat();
+            assertTrue(f >= 0 && f < 1);
+        }
+    }
+
+    @Test
+    public void uuidIsVersion4() {
+        UUID uuid = new RandomSource(3).nextUUID();
+        assertEquals(4, uuid.version());
+        assertEquals(2, uuid.variant());
+    }
+
+}
@@ -1,17 +1,28 @@
 package com.github.vincentrussell.json.datagenerator.impl;
 
 import org.apache.commons.io.IOUtils;
+import org.junit.Assume;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.synectiks.json.datagenerator.impl.ByteArrayBackupToFileOutputStream;
+import com.synectiks.json.datagenerator.impl.SegmentPool;
 
 import java.io.*;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Random;
 
 import static org.junit.Assert.*;
 
 public class ByteArrayBackupToFileOutputStreamTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void notOverflow() throws IOException {
         int size = 3;
@@ -344,4 +355,221 @@ public class ByteArrayBackupToFileOutputStreamTest {
         }
     }
 
+    @Test
+    public void writeByteArraySliceAfterOverflow() throws IOException {
+        byte[] bytes = "0123456789abcdefghij".getBytes();
+        try (ByteArrayBackupToFileOutputStream byteArrayBackupToFileOutputStream = new ByteArrayBackupToFileOutputStream(5, 5)) {
+            byteArrayBackupToFileOutputStream.write(bytes, 0, 4);
+            byteArrayBackupToFileOutputStream.write(bytes, 10, 3);
+            byteArrayBackupToFileOutputStream.write(bytes, 15, 5);
+            assertTrue(byteArrayBackupToFileOutputStream.isOverflowed());
+            assertEquals("0123abcfghij", byteArrayBackupToFileOutputStream.toString());
+        }
+    }
+
+    @Test
+    public void spillsToTheSpillDirectoryAndDeletesTheFileOnClose() throws IOException {
+        File spillDirectory = temporaryFolder.newFolder();
+        byte[] bytes = new byte[250];
+        new Random().nextBytes(bytes);
+        try (ByteArrayBackupToFileOutputStream byteArrayBackupToFileOutputStream = new ByteArrayBackupToFileOutputStream(16, 100, spillDirectory)) {
+            byteArrayBackupToFileOutputStream.write(bytes, 0, 100);
+            assertEquals(100, byteArrayBackupToFileOutputStream.getBytesInMemory());
+            assertEquals(0, byteArrayBackupToFileOutputStream.getBytesOnDisk());
+            assertEquals(0, spillDirectory.list().length);
+
+            byteArrayBackupToFileOutputStream.write(bytes, 100, 150);
+            assertEquals(1, spillDirectory.list().length);
+            assertEquals(100, byteArrayBackupToFileOutputStream.getBytesOnDisk());
+            assertEquals(150, byteArrayBackupToFileOutputStream.getBytesInMemory());
+
+            byteArrayBackupToFileOutputStream.flush();
+            assertEquals(250, byteArrayBackupToFileOutputStream.getBytesOnDisk());
+            assertEquals(0, byteArrayBackupToFileOutputStream.getBytesInMemory());
+            assertEquals(250, spillDirectory.listFiles()[0].length());
+        }
+        assertEquals(0, spillDirectory.list().length);
+    }
+
+    @Test
+    public void truncateTheFileThenWriteAgain() throws IOException {
+        byte[] bytes = new byte[50000];
+        new Random().nextBytes(bytes);
+        try (ByteArrayBackupToFileOutputStream byteArrayBackupToFileOutputStream = new ByteArrayBackupToFileOutputStream(16, 1000)) {
+            byteArrayBackupToFileOutputStream.write(bytes);
+            byteArrayBackupToFileOutputStream.setLength(20000);
+            assertEquals(20000, byteArrayBackupToFileOutputStream.getBytesOnDisk());
+            byteArrayBackupToFileOutputStream.write(bytes, 20000, 30000);
+            try (InputStream inputStream = byteArrayBackupToFileOutputStream.getNewInputStream();
+                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+                IOUtils.copy(inputStream, outputStream);
+                assertArrayEquals(bytes, outputStream.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void randomWritesAndTruncationsMatchAByteArray() throws IOException {
+        Random random = new Random(42);
+        for (int threshold : new int[] {0, 1, 100, 5000, 100000}) {
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            try (ByteArrayBackupToFileOutputStream byteArrayBackupToFileOutputStream = new ByteArrayBackupToFileOutputStream(7, threshold)) {
+                for (int operation = 0; operation < 2000; operation++) {
+                    int choice = random.nextInt(10);
+                    if (choice < 4) {
+                        int b = random.nextInt(256);
+                        byteArrayBackupToFileOutputStream.write(b);
+                        expected.write(b);
+                    } else if (choice < 8) {
+                        byte[] bytes = new byte[random.nextInt(10000)];
+                        random.nextBytes(bytes);
+                        int off = bytes.length > 0 ? random.nextInt(bytes.length) : 0;
+                        int len = bytes.length > 0 ? random.nextInt(bytes.length - off + 1) : 0;
+                        byteArrayBackupToFileOutputStream.write(bytes, off, len);
+                        expected.write(bytes, off, len);
+                    } else if (expected.size() > 0) {
+                        int length = random.nextInt(expected.size() + 1);
+                        byteArrayBackupToFileOutputStream.setLength(length);
+                        byte[] truncated = Arrays.copyOf(expected.toByteArray(), length);
+                        expected.reset();
+                        expected.write(truncated);
+                    }
+                    assertEquals(expected.size(), byteArrayBackupToFileOutputStream.getLength());
+                    assertEquals(expected.size(), byteArrayBackupToFileOutputStream.getBytesInMemory()
+                        + byteArrayBackupToFileOutputStream.getBytesOnDisk());
+                }
+                try (InputStream inputStream = byteArrayBackupToFileOutputStream.getNewInputStream();
+                     ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+                    IOUtils.copy(inputStream, outputStream);
+                    assertArrayEquals("threshold " + threshold, expected.toByteArray(), outputStream.toByteArray());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sharedPoolSegmentsAreReadInPlaceAndReturnedOnClose() throws IOException {
+        SegmentPool segmentPool = new SegmentPool(8, 100);
+        byte[] bytes = "the quick brown fox jumps over the lazy dog".getBytes();
+        try (ByteArrayBackupToFileOutputStream byteArrayBackupToFileOutputStream = new ByteArrayBackupToFileOutputStream(segmentPool, 1000, null)) {
+            byteArrayBackupToFileOutputStream.write(bytes);
+            assertEquals(6, segmentPool.getAllocatedSegments());
+            try (InputStream inputStream = byteArrayBackupToFileOutputStream.getNewInputStream()) {
+                assertTrue(ByteArrayInputStream.class.isInstance(inputStream));
+                assertEquals(bytes.length, inputStream.available());
+                assertEquals('t', inputStream.read());
+                assertEquals(9, inputStream.skip(9));
+                inputStream.mark(0);
+                byte[] read = new byte[5];
+                assertEquals(5, inputStream.read(read));
+                assertEquals("brown", new String(read));
+                inputStream.reset();
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                IOUtils.copy(inputStream, outputStream);
+                assertEquals("brown fox jumps over the lazy dog", outputStream.toString());
+            }
+            byteArrayBackupToFileOutputStream.setLength(10);
+            assertEquals(4, segmentPool.getRetainedSegments());
+        }
+        assertEquals(6, segmentPool.getRetainedSegments());
+    }
+
+
+    @Test
+    public void writeToFileAfterOverflowTransfersSpillFile() throws IOException {
+        byte[] bytes = new byte[100000];
+        new Random().nextBytes(bytes);
+        File destination = temporaryFolder.newFile();
+        try (ByteArrayBackupToFileOutputStream byteArrayBackupToFileOutputStream = new ByteArrayBackupToFileOutputStream(64, 1000);
+             FileOutputStream fileOutputStream = new FileOutputStream(destination)) {
+            byteArrayBackupToFileOutputStream.write(bytes, 0, 50000);
+            byteArrayBackupToFileOutputStream.write(bytes, 50000, 50000);
+            fileOutputStream.write(bytes, 0, 3);
+            assertTrue(byteArrayBackupToFileOutputStream.isOverflowed());
+            assertEquals(bytes.length, byteArrayBackupToFileOutputStream.writeTo(fileOutputStream));
+        }
+        byte[] written = Files.readAllBytes(destination.toPath());
+        assertEquals(bytes.length + 3, written.length);
+        assertArrayEquals(bytes, Arrays.copyOfRange(written, 3, written.length));
+    }
+
+    @Test
+    public void writeToStreamAfterOverflowAndInMemory() throws IOException {
+        byte[] bytes = new byte[5000];
+        new Random().nextBytes(bytes);
+        try (ByteArrayBackupToFileOutputStream inMemory = new ByteArrayBackupToFileOutputStream(64, bytes.length);
+             ByteArrayBackupToFileOutputStream overflowed = new ByteArrayBackupToFileOutputStream(64, 100)) {
+            inMemory.write(bytes);
+            overflowed.write(bytes);
+            //bytes still in the write buffer must be written too
+            overflowed.write(7);
+            ByteArrayOutputStream fromMemory = new ByteArrayOutputStream();
+            ByteArrayOutputStream fromFile = new ByteArrayOutputStream();
+            assertEquals(bytes.length, inMemory.writeTo(fromMemory));
+            assertEquals(bytes.length + 1, overflowed.writeTo(fromFile));
+            assertFalse(inMemory.isOverflowed());
+            assertArrayEquals(bytes, fromMemory.toByteArray());
+            byte[] expected = Arrays.copyOf(bytes, bytes.length + 1);
+            expected[bytes.length] = 7;
+            assertArrayEquals(expected, fromFile.toByteArray());
+        }
+    }
+
+    @Test
+    public void writeToChannel() throws IOException {
+        byte[] bytes = new byte[3000];
+        new Random().nextBytes(bytes);
+        for (int sizeBeforeOverFlow : new int[] {bytes.length, 10}) {
+            File destination = temporaryFolder.newFile();
+            try (ByteArrayBackupToFileOutputStream byteArrayBackupToFileOutputStream = new ByteArrayBackupToFileOutputStream(64, sizeBeforeOverFlow);
+                 FileChannel channel = new RandomAccessFile(destination, "rw").getChannel()) {
+                byteArrayBackupToFileOutputStream.write(bytes);
+                assertEquals(bytes.length, byteArrayBackupToFileOutputStream.writeTo(channel));
+            }
+            assertArrayEquals(bytes, Files.readAllBytes(destination.toPath()));
+        }
+    }
+
+    @Test
+    public void toStringAfterOverflow() throws IOException {
+        String string = "中文替换 Как тебя зовут هناك أولاد في الحديقة";
+        try (ByteArrayBackupToFileOutputStream byteArrayBackupToFileOutputStream = new ByteArrayBackupToFileOutputStream(4, 10)) {
+            byteArrayBackupToFileOutputStream.write(string.getBytes("UTF-8"));
+            assertTrue(byteArrayBackupToFileOutputStream.isOverflowed());
+            assertEquals(string, byteArrayBackupToFileOutputStream.toString());
+        }
+    }
+
+    @Test
+    public void segmentedInputStreamSupportsTheBulkReadsOfNewerJdks() throws Exception {
+        byte[] bytes = "hello world".getBytes("UTF-8");
+        try (ByteArrayBackupToFileOutputStream byteArrayBackupToFileOutputStream = new ByteArrayBackupToFileOutputStream(4, 1000)) {
+            byteArrayBackupToFileOutputStream.write(bytes);
+            Method readAllBytes;
+            try {
+                readAllBytes = InputStream.class.getMethod("readAllBytes");
+            } catch (NoSuchMethodException e) {
+                Assume.assumeNoException("readAllBytes needs java 9", e);
+                return;
+            }
+            try (InputStream inputStream = byteArrayBackupToFileOutputStream.getNewInputStream()) {
+                assertArrayEquals(bytes, (byte[]) readAllBytes.invoke(inputStream));
+                assertEquals(0, inputStream.available());
+            }
+            try (InputStream inputStream = byteArrayBackupToFileOutputStream.getNewInputStream()) {
+                assertEquals(1, inputStream.skip(1));
+                byte[] read = new byte[9];
+                assertEquals(9, InputStream.class.getMethod("readNBytes", byte[].class, int.class, int.class)
+                    .invoke(inputStream, read, 0, 9));
+                assertEquals("ello worl", new String(read, "UTF-8"));
+                assertEquals(1, inputStream.available());
+            }
+            try (InputStream inputStream = byteArrayBackupToFileOutputStream.getNewInputStream();
+                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+                assertEquals((long) bytes.length, InputStream.class.getMethod("transferTo", OutputStream.class)
+                    .invoke(inputStream, outputStream));
+                assertArrayEquals(bytes, outputStream.toByteArray());
+            }
+        }
+    }
 }
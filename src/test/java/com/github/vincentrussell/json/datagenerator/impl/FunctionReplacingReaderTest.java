@@ -0,0 +1,103 @@
+package com.github.vincentrussell.json.datagenerator.impl;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import com.synectiks.json.datagenerator.impl.FunctionReplacingReader;
+import com.synectiks.json.datagenerator.impl.FunctionTokenResolver;
+
+import java.io.BufferedReader;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+public class FunctionReplacingReaderTest {
+
+    private static final String TEMPLATE = "{\"a\": \"{{concat(\"b\", \"c\")}}\", \"escaped\": \"{{concat(\"\\{\", \"x\", \"\\}\")}}\","
+        + " \"invalid\": \"{{notAFunction()}}\", \"broken\": \"{ {{ { {{integer(1, 1)} }}\"}";
+    private static final String EXPECTED = "{\"a\": \"bc\", \"escaped\": \"{x}\","
+        + " \"invalid\": \"{{notAFunction()}}\", \"broken\": \"{ {{ { {{integer(1, 1)} }}\"}";
+
+    @Test
+    public void singleCharacterRead() throws IOException {
+        try (Reader reader = newReader(new StringReader(TEMPLATE))) {
+            StringBuilder stringBuilder = new StringBuilder();
+            int c;
+            while ((c = reader.read()) != -1) {
+                stringBuilder.append((char) c);
+            }
+            assertEquals(EXPECTED, stringBuilder.toString());
+        }
+    }
+
+    @Test
+    public void bulkReadThroughBufferedReader() throws IOException {
+        try (Reader reader = new BufferedReader(newReader(new StringReader(TEMPLATE)))) {
+            assertEquals(EXPECTED, IOUtils.toString(reader));
+        }
+    }
+
+    @Test
+    public void bulkReadWithTinyTargetAndSource() throws IOException {
+        try (Reader reader = newReader(new OneCharacterReader(new StringReader(TEMPLATE)))) {
+            StringBuilder stringBuilder = new StringBuilder();
+            char[] chars = new char[3];
+            int read;
+            while ((read = reader.read(chars, 0, chars.length)) != -1) {
+                stringBuilder.append(chars, 0, read);
+            }
+            assertEquals(EXPECTED, stringBuilder.toString());
+        }
+    }
+
+    @Test
+    public void readIntoCharBuffer() throws IOException {
+        try (Reader reader = newReader(new StringReader(TEMPLATE))) {
+            StringBuilder stringBuilder = new StringBuilder();
+            CharBuffer charBuffer = CharBuffer.allocate(7);
+            while (reader.read(charBuffer) != -1) {
+                charBuffer.flip();
+                stringBuilder.append(charBuffer);
+                charBuffer.clear();
+            }
+            assertEquals(EXPECTED, stringBuilder.toString());
+        }
+    }
+
+    @Test
+    public void tokensLongerThanTheBuffer() throws IOException {
+        String longValue = StringUtils.repeat("x", 20000);
+        try (Reader reader = newReader(new StringReader("[{{concat(\"" + longValue + "\")}}]"))) {
+            assertEquals("[" + longValue + "]", IOUtils.toString(reader));
+        }
+    }
+
+    @Test
+    public void unterminatedToken() throws IOException {
+        try (Reader reader = newReader(new StringReader("{{"))) {
+            assertEquals("{{}}", IOUtils.toString(reader));
+        }
+    }
+
+    private Reader newReader(final Reader source) {
+        return new FunctionReplacingReader(source, new FunctionTokenResolver());
+    }
+
+    private static class OneCharacterReader extends FilterReader {
+
+        OneCharacterReader(final Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read(final char[] cbuf, final int off, final int len) throws IOException {
+            return super.read(cbuf, off, Math.min(1, len));
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.github.vincentrussell.json.datagenerator.impl;
+
+import org.junit.Test;
+
+import com.synectiks.json.datagenerator.impl.FunctionTokenResolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class FunctionTokenResolverTest {
+
+    @Test
+    public void repeatedTokensAreParsedOnce() {
+        FunctionTokenResolver resolver = new FunctionTokenResolver();
+        assertEquals("bc", resolver.resolveToken("concat(\"b\", \"c\")"));
+        assertEquals("bc", resolver.resolveToken(new StringBuilder("concat(\"b\", \"c\")")));
+        assertEquals("d", resolver.resolveToken("concat(\"d\")"));
+        assertEquals(1, resolver.getCacheHits());
+        assertEquals(2, resolver.getCacheMisses());
+        assertEquals(2, resolver.getCacheSize());
+    }
+
+    @Test
+    public void leastRecentlyUsedTokenIsEvicted() {
+        FunctionTokenResolver resolver = new FunctionTokenResolver(2);
+        resolver.resolveToken("concat(\"1\")");
+        resolver.resolveToken("concat(\"2\")");
+        resolver.resolveToken("concat(\"1\")");
+        resolver.resolveToken("concat(\"3\")");
+        assertEquals(2, resolver.getCacheSize());
+        resolver.resolveToken("concat(\"1\")");
+        assertEquals(2, resolver.getCacheHits());
+        resolver.resolveToken("concat(\"2\")");
+        assertEquals(4, resolver.getCacheMisses());
+    }
+
+    @Test
+    public void unparseableTokenIsRejectedEveryTime() {
+        FunctionTokenResolver resolver = new FunctionTokenResolver();
+        for (int i = 0; i < 2; i++) {
+            try {
+                resolver.resolveToken("notAFunction()");
+                fail("expected IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                assertEquals("cannot parse function: notAFunction()", e.getMessage());
+            }
+        }
+        assertEquals(1, resolver.getCacheMisses());
+        assertEquals(1, resolver.getCacheHits());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeCacheSize() {
+        new FunctionTokenResolver(-1);
+    }
+}
@@ -0,0 +1,185 @@
+package com.github.vincentrussell.json.datagenerator.impl;
+
+import com.google.common.base.Charsets;
+import com.synectiks.json.datagenerator.CompiledTemplate;
+import com.synectiks.json.datagenerator.JsonDataGeneratorException;
+import com.synectiks.json.datagenerator.RenderOptions;
+import com.synectiks.json.datagenerator.functions.Function;
+import com.synectiks.json.datagenerator.functions.FunctionInvocation;
+import com.synectiks.json.datagenerator.functions.FunctionRegistry;
+import com.synectiks.json.datagenerator.impl.JsonDataGeneratorImpl;
+import com.synectiks.json.datagenerator.impl.RecordPublisher;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RecordPublisherTest {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    };
+
+    private CompiledTemplate compiledTemplate;
+
+    @Before
+    public void setUp() throws JsonDataGeneratorException {
+        FunctionRegistry functionRegistry = new FunctionRegistry();
+        functionRegistry.registerClass(Counter.class);
+        Counter.COUNT.set(0);
+        compiledTemplate = new JsonDataGeneratorImpl(new RenderOptions(), functionRegistry)
+            .compile("['{{repeat(1000)}}', {\"n\": {{count()}}}]");
+    }
+
+    @Test
+    public void deliversOnlyWhatIsRequestedAndRendersAheadWithinTheWindow() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new RecordPublisher(compiledTemplate, new RenderOptions(), DIRECT_EXECUTOR, 5)
+            .subscribe(subscriber);
+        assertEquals(0, Counter.COUNT.get());
+
+        subscriber.subscription.request(3);
+        assertEquals(3, subscriber.records.size());
+        assertEquals("{\"n\": 1}", subscriber.records.get(0));
+        assertEquals("{\"n\": 3}", subscriber.records.get(2));
+        assertEquals(3 + 5, Counter.COUNT.get());
+
+        subscriber.subscription.request(2);
+        assertEquals(5, subscriber.records.size());
+        assertEquals("{\"n\": 5}", subscriber.records.get(4));
+        assertEquals(5 + 5, Counter.COUNT.get());
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void completesAfterTheLastRecord() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new RecordPublisher(compiledTemplate, new RenderOptions(), DIRECT_EXECUTOR, 16)
+            .subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(1000, subscriber.records.size());
+        assertEquals("{\"n\": 1000}", subscriber.records.get(999));
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void cancelStopsRenderingInTheMiddleOfARepeat() {
+        RecordingSubscriber subscriber = new RecordingSubscriber() {
+            @Override
+            public void onNext(final ByteBuffer byteBuffer) {
+                super.onNext(byteBuffer);
+                if (records.size() == 10) {
+                    subscription.cancel();
+                }
+            }
+        };
+        new RecordPublisher(compiledTemplate, new RenderOptions(), DIRECT_EXECUTOR, 4)
+            .subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(10, subscriber.records.size());
+        assertEquals(10, Counter.COUNT.get());
+        subscriber.subscription.request(5);
+        assertEquals(10, subscriber.records.size());
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void nonPositiveRequestSignalsError() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new RecordPublisher(compiledTemplate, new RenderOptions(), DIRECT_EXECUTOR, 4)
+            .subscribe(subscriber);
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        subscriber.subscription.request(1);
+        assertTrue(subscriber.records.isEmpty());
+    }
+
+    @Test
+    public void requestsFromAnotherThreadAreDeliveredInOrder() throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            final CountDownLatch finished = new CountDownLatch(1);
+            RecordingSubscriber subscriber = new RecordingSubscriber() {
+                @Override
+                public void onNext(final ByteBuffer byteBuffer) {
+                    super.onNext(byteBuffer);
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onComplete() {
+                    super.onComplete();
+                    finished.countDown();
+                }
+            };
+            new RecordPublisher(compiledTemplate, new RenderOptions(), executorService, 8)
+                .subscribe(subscriber);
+            subscriber.subscription.request(1);
+            assertTrue(finished.await(30, TimeUnit.SECONDS));
+            assertEquals(1000, subscriber.records.size());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("{\"n\": " + (i + 1) + "}", subscriber.records.get(i));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static class RecordingSubscriber implements Subscriber<ByteBuffer> {
+        protected final List<String> records = Collections.synchronizedList(new ArrayList<String>());
+        protected volatile Subscription subscription;
+        protected volatile boolean completed;
+        protected volatile Throwable error;
+
+        @Override
+        public void onSubscribe(final Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final ByteBuffer byteBuffer) {
+            records.add(Charsets.UTF_8.decode(byteBuffer).toString());
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Function(name = "count")
+    public static class Counter {
+
+        static final AtomicInteger COUNT = new AtomicInteger();
+
+        @FunctionInvocation
+        public String count() {
+            return Integer.toString(COUNT.incrementAndGet());
+        }
+    }
+}
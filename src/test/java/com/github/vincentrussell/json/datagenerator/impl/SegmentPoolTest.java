@@ -0,0 +1,69 @@
+package com.github.vincentrussell.json.datagenerator.impl;
+
+import com.synectiks.json.datagenerator.JsonDataGeneratorException;
+import com.synectiks.json.datagenerator.RenderOptions;
+import com.synectiks.json.datagenerator.functions.FunctionRegistry;
+import com.synectiks.json.datagenerator.impl.JsonDataGeneratorImpl;
+import com.synectiks.json.datagenerator.impl.SegmentPool;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentPoolTest {
+
+    @Test
+    public void releasedSegmentsAreReused() {
+        SegmentPool segmentPool = new SegmentPool(16, 2);
+        byte[] first = segmentPool.borrow();
+        byte[] second = segmentPool.borrow();
+        assertNotSame(first, second);
+        assertEquals(16, first.length);
+        assertEquals(2, segmentPool.getAllocatedSegments());
+
+        segmentPool.release(first);
+        assertEquals(1, segmentPool.getRetainedSegments());
+        assertSame(first, segmentPool.borrow());
+        assertEquals(2, segmentPool.getAllocatedSegments());
+        assertEquals(0, segmentPool.getRetainedSegments());
+    }
+
+    @Test
+    public void keepsNoMoreThanMaxRetainedSegments() {
+        SegmentPool segmentPool = new SegmentPool(16, 2);
+        byte[][] segments = new byte[5][];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = segmentPool.borrow();
+        }
+        for (byte[] segment : segments) {
+            segmentPool.release(segment);
+        }
+        assertEquals(2, segmentPool.getRetainedSegments());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void segmentOfAnotherSizeCanNotBeReleased() {
+        new SegmentPool(16, 2).release(new byte[8]);
+    }
+
+    @Test
+    public void parallelRendersReuseTheSegmentsOfTheGenerator() throws JsonDataGeneratorException {
+        SegmentPool segmentPool = new SegmentPool();
+        JsonDataGeneratorImpl generator = new JsonDataGeneratorImpl(
+            new RenderOptions().setThreads(4), new FunctionRegistry(), segmentPool);
+        String template = "['{{repeat(5000)}}', {\"id\": {{index()}}, \"text\": \"{{lorem(5, 'words')}}\"}]";
+        generator.generateTestDataJson(template, new NullOutputStream());
+        long allocatedByFirstRender = segmentPool.getAllocatedSegments();
+        assertTrue(allocatedByFirstRender > 0);
+        for (int i = 0; i < 20; i++) {
+            generator.generateTestDataJson(template, new NullOutputStream());
+        }
+        assertTrue(segmentPool.getAllocatedSegments() + " segments allocated after "
+                + allocatedByFirstRender + " for the first render",
+            segmentPool.getAllocatedSegments() < 2 * allocatedByFirstRender);
+        assertEquals(segmentPool.getAllocatedSegments(), segmentPool.getRetainedSegments());
+    }
+}
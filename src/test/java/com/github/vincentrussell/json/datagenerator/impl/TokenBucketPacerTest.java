@@ -0,0 +1,143 @@
+package com.github.vincentrussell.json.datagenerator.impl;
+
+import com.synectiks.json.datagenerator.RateProfile;
+import com.synectiks.json.datagenerator.RateReport;
+import com.synectiks.json.datagenerator.impl.TokenBucketPacer;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketPacerTest {
+
+    @Test
+    public void pacesToAConstantRate() throws InterruptedException {
+        TokenBucketPacer pacer = new TokenBucketPacer(RateProfile.constant(500));
+        long start = System.nanoTime();
+        for (int i = 0; i < 250; i++) {
+            pacer.acquire();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= 490 && elapsedMillis < 1000);
+        RateReport report = pacer.getReport();
+        assertEquals(250, report.getRecords());
+        assertEquals(500, report.getAchievedRate(), 50);
+        assertEquals(500, report.getTargetRate(), 1);
+    }
+
+    @Test
+    public void burstKeepsAHighRateAtTheTarget() throws InterruptedException {
+        //a 50 token bucket makes up the records lost while the thread is descheduled, which
+        //a single token bucket can not at this rate
+        TokenBucketPacer pacer = new TokenBucketPacer(RateProfile.constant(2000), 50);
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            pacer.acquire();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= 490 && elapsedMillis < 1000);
+        RateReport report = pacer.getReport();
+        assertEquals(1000, report.getRecords());
+        assertEquals(2000, report.getAchievedRate(), 200);
+        assertEquals(2000, report.getTargetRate(), 1);
+        assertTrue(report.toString(), report.getLag() <= 100);
+    }
+
+    @Test
+    public void followsARamp() throws InterruptedException {
+        TokenBucketPacer pacer = new TokenBucketPacer(
+            RateProfile.linearRamp(0, 2000, 500, TimeUnit.MILLISECONDS));
+        long start = System.nanoTime();
+        for (int i = 0; i < 500; i++) {
+            pacer.acquire();
+        }
+        //the ramp produces 500 tokens in its 500ms
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= 480 && elapsedMillis < 1000);
+    }
+
+    @Test
+    public void waitsOutAZeroRate() throws InterruptedException {
+        TokenBucketPacer pacer = new TokenBucketPacer(
+            RateProfile.steps(200, TimeUnit.MILLISECONDS, 10000, 0, 10000));
+        long start = System.nanoTime();
+        for (int i = 0; i < 2100; i++) {
+            pacer.acquire();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= 400 && elapsedMillis < 1000);
+    }
+
+    @Test
+    public void slowProducerOnlyCatchesUpByTheBurst() throws InterruptedException {
+        TokenBucketPacer pacer = new TokenBucketPacer(RateProfile.constant(20), 5);
+        pacer.acquire();
+        Thread.sleep(500);
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            pacer.acquire();
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(25));
+        pacer.acquire();
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(45));
+        RateReport report = pacer.getReport();
+        assertTrue(report.toString(), report.getLag() >= 3);
+    }
+
+    @Test
+    public void rampDownToZeroTimesOutInsteadOfSpinning() throws InterruptedException {
+        TokenBucketPacer pacer = new TokenBucketPacer(
+            RateProfile.linearRamp(200, 0, 500, TimeUnit.MILLISECONDS));
+        //the ramp produces 50 tokens and then none
+        assertEquals(50, acquireUntilTimeout(pacer), 2);
+    }
+
+    @Test
+    public void lastStepOfZeroTimesOutInsteadOfSpinning() throws InterruptedException {
+        TokenBucketPacer pacer = new TokenBucketPacer(
+            RateProfile.steps(250, TimeUnit.MILLISECONDS, 200, 0));
+        assertEquals(50, acquireUntilTimeout(pacer), 2);
+    }
+
+    @Test
+    public void acquireAtAZeroRateCanBeInterrupted() throws InterruptedException {
+        final TokenBucketPacer pacer = new TokenBucketPacer(
+            RateProfile.steps(100, TimeUnit.MILLISECONDS, 100, 0));
+        final AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        pacer.acquire();
+                    }
+                } catch (Throwable t) {
+                    thrown.set(t);
+                }
+            }
+        });
+        thread.start();
+        Thread.sleep(300);
+        thread.interrupt();
+        thread.join(2000);
+        assertFalse(thread.isAlive());
+        assertTrue(String.valueOf(thrown.get()), thrown.get() instanceof InterruptedException);
+    }
+
+    private static int acquireUntilTimeout(final TokenBucketPacer pacer) throws InterruptedException {
+        long start = System.nanoTime();
+        int records = 0;
+        while (pacer.tryAcquire(300, TimeUnit.MILLISECONDS)) {
+            records++;
+            assertTrue("still acquiring after " + records + " records",
+                System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= 300 && elapsedMillis < 2000);
+        return records;
+    }
+}
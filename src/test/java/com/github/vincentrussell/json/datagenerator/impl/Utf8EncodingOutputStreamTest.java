@@ -0,0 +1,99 @@
+package com.github.vincentrussell.json.datagenerator.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.synectiks.json.datagenerator.impl.Utf8EncodingOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Utf8EncodingOutputStreamTest {
+
+    @Test
+    public void encodesLikeStringGetBytes() throws IOException {
+        String text = "ascii éè 中文 😀 🍕 unpaired \ud83d end \ude00";
+        assertArrayEquals(text.getBytes(Charsets.UTF_8), encode(text, 64));
+    }
+
+    @Test
+    public void encodesAcrossBufferBoundaries() throws IOException {
+        String text = StringUtils.repeat("aé中😀", 1000);
+        for (int size = 4; size < 12; size++) {
+            assertArrayEquals(text.getBytes(Charsets.UTF_8), encode(text, size));
+        }
+    }
+
+    @Test
+    public void mixesBytesAndText() throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (Utf8EncodingOutputStream outputStream = new Utf8EncodingOutputStream(byteArrayOutputStream, 8)) {
+            outputStream.write("[".getBytes(Charsets.UTF_8));
+            outputStream.write("中文");
+            outputStream.write(',');
+            outputStream.write("a much longer byte array".getBytes(Charsets.UTF_8));
+            outputStream.write("]");
+        }
+        assertEquals("[中文,a much longer byte array]", byteArrayOutputStream.toString("UTF-8"));
+    }
+
+    @Test
+    public void writesByteBuffersAcrossBufferBoundaries() throws IOException {
+        byte[] bytes = StringUtils.repeat("aé中😀", 100).getBytes(Charsets.UTF_8);
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        ByteBuffer byteBuffer = ByteBuffer.wrap(bytes, 3, bytes.length - 3).slice();
+        try (Utf8EncodingOutputStream outputStream = new Utf8EncodingOutputStream(byteArrayOutputStream, 7)) {
+            outputStream.write('[');
+            outputStream.write(byteBuffer);
+        }
+        assertEquals(0, byteBuffer.remaining());
+        byte[] expected = new byte[bytes.length - 2];
+        expected[0] = '[';
+        System.arraycopy(bytes, 3, expected, 1, bytes.length - 3);
+        assertArrayEquals(expected, byteArrayOutputStream.toByteArray());
+    }
+
+    @Test
+    public void closeNotCalledOnWrappedOutputStream() throws IOException {
+        RecordingOutputStream wrappedOutputStream = new RecordingOutputStream();
+        Utf8EncodingOutputStream outputStream = new Utf8EncodingOutputStream(wrappedOutputStream);
+        outputStream.write("test");
+        outputStream.close();
+        assertEquals("test", wrappedOutputStream.toString("UTF-8"));
+        assertTrue(wrappedOutputStream.flushed);
+        assertFalse(wrappedOutputStream.closed);
+    }
+
+    private byte[] encode(final String text, final int bufferSize) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (Utf8EncodingOutputStream outputStream = new Utf8EncodingOutputStream(byteArrayOutputStream, bufferSize)) {
+            outputStream.write(text);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private static class RecordingOutputStream extends ByteArrayOutputStream {
+        private boolean flushed;
+        private boolean closed;
+
+        @Override
+        public void flush() throws IOException {
+            flushed = true;
+            super.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+
+}
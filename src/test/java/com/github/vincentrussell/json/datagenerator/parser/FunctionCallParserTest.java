@@ -0,0 +1,95 @@
+package com.github.vincentrussell.json.datagenerator.parser;
+
+import com.synectiks.json.datagenerator.parser.FunctionCallParser;
+import com.synectiks.json.datagenerator.parser.FunctionParser;
+import com.synectiks.json.datagenerator.parser.ParseException;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class FunctionCallParserTest {
+
+    private static final String[] TOKENS = {
+        "concat(\"a\", \"b\")",
+        "concat('a', 'b')",
+        "f()",
+        " f ( ) ",
+        "f(1, -2, 0, 3L, -4L, 1.5, -.5, 2e10, 1.e5, 7f, 1.5D, 0.5e-3f)",
+        "f(-0)",
+        "f(-1e5)",
+        "f(-1e5x())",
+        "f(007)",
+        "f(01.5)",
+        "f(1abc)",
+        "f(\"\\n\\t\\\"\\'\\\\\\1\\07\\377\")",
+        "f('\\\"')",
+        "f('\\'')",
+        "f(\"a\nb\")",
+        "f(\"\\x\")",
+        "f(\"unterminated)",
+        "random(lorem(50, 'words'), concat(firstName(), lastName()), uuid())",
+        "/* comment */ f(/* a */ 'x' // line\n, 'y')",
+        "f('x') // comment without end of line",
+        "f('x') trailing ) junk",
+        "f(,)",
+        "f('a',)",
+        "f('a' 'b')",
+        "-f-_9()",
+        "9f()",
+        "f",
+        "",
+        "f(g(h(i())))",
+        "f('{', \"}\", '\\{')"
+    };
+
+    @Test
+    public void matchesGeneratedParser() {
+        for (String token : TOKENS) {
+            assertSameResult(token);
+        }
+    }
+
+    @Test
+    public void matchesGeneratedParserOnRandomTokens() {
+        final String alphabet = "ab-_015.eEL+fd(),\"'\\ \n/*";
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder token = new StringBuilder("f(");
+            int length = random.nextInt(16);
+            for (int j = 0; j < length; j++) {
+                token.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            assertSameResult(token.toString());
+        }
+    }
+
+    @Test
+    public void parsesSliceOfText() throws ParseException {
+        String text = "{{concat('a', index())}}";
+        assertEquals("concat(\"a\", index())",
+            FunctionCallParser.parse(text, 2, text.length() - 2).toString());
+    }
+
+    private static void assertSameResult(final String token) {
+        assertEquals(token, generatedParserResult(token), handWrittenParserResult(token));
+    }
+
+    private static String generatedParserResult(final String token) {
+        try {
+            return new FunctionParser(new StringReader(token)).Compile().toString();
+        } catch (Throwable e) {
+            return "error";
+        }
+    }
+
+    private static String handWrittenParserResult(final String token) {
+        try {
+            return FunctionCallParser.parse(token).toString();
+        } catch (ParseException e) {
+            return "error";
+        }
+    }
+}